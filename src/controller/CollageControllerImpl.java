@@ -2,12 +2,21 @@ package controller;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import model.CollageModel;
 import model.Filter;
+import model.SaveListener;
 import view.TextView;
 
 /**
@@ -18,6 +27,30 @@ public class CollageControllerImpl implements CollageController {
   private final TextView out;
   private CollageModel model;
   private boolean quit = false;
+  // the saves that may not have ended yet, with the file each one writes, including cancelled
+  // saves whose thread may still be writing the file
+  private final Map<Future<?>, Path> saves = new LinkedHashMap<Future<?>, Path>();
+  private final SaveListener listener = new SaveListener() {
+    @Override
+    public void progress(String filename, double fraction) {
+      // the text view only reports how a save ended
+    }
+
+    @Override
+    public void saved(String filename) {
+      printMessage("Saved " + filename + ".\n");
+    }
+
+    @Override
+    public void failed(String filename, Exception e) {
+      printMessage("Unsuccessful save of " + filename + ": " + e.getMessage() + "\n");
+    }
+
+    @Override
+    public void cancelled(String filename) {
+      printMessage("Saving " + filename + " was cancelled.\n");
+    }
+  };
 
   /**
    * Creates a controller object with the given model, input, and output.
@@ -74,9 +107,49 @@ public class CollageControllerImpl implements CollageController {
       }
     }
 
+    this.awaitSaves(null);
     this.printMessage("Thanks for using Collaging!\n");
   }
 
+  /*
+   * Helper method that waits for the saves of the given file, or of every file when it is null,
+   * so a file is only read or written again once it is complete and the program does not end
+   * in the middle of a save.
+   */
+  private void awaitSaves(String filePath) {
+    Path file = Objects.isNull(filePath) ? null : file(filePath);
+    Iterator<Map.Entry<Future<?>, Path>> pending = this.saves.entrySet().iterator();
+    while (pending.hasNext()) {
+      Map.Entry<Future<?>, Path> save = pending.next();
+      if (save.getKey().isDone() && !save.getKey().isCancelled()) {
+        // the file has been written or could not be written
+        pending.remove();
+        continue;
+      }
+      if (Objects.nonNull(file) && !save.getValue().equals(file)) {
+        continue;
+      }
+      try {
+        // a cancelled save only returns once its thread has stopped writing the file
+        save.getKey().get();
+      } catch (CancellationException | ExecutionException e) {
+        // the listener has already reported how the save ended
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      pending.remove();
+    }
+  }
+
+  /*
+   * Helper method that returns the absolute path of the given file, so every name of a file
+   * finds its saves.
+   */
+  private static Path file(String filePath) {
+    return Paths.get(filePath).toAbsolutePath().normalize();
+  }
+
   /**
    * Runs the given command based on the option.
    *
@@ -102,6 +175,8 @@ public class CollageControllerImpl implements CollageController {
       case "load-project":
         try {
           String filePath = args[0];
+          // wait for the file to be saved before it is read
+          this.awaitSaves(filePath);
           // Open PPM file and pass it to model
           this.model = model.readProject(filePath);
         } catch (FileNotFoundException e) {
@@ -110,8 +185,11 @@ public class CollageControllerImpl implements CollageController {
         break;
       case "save-project":
         String filePath = args[0];
-        // Save the entire model as a project text file
-        model.writeProject(this.model, filePath);
+        // Save a copy of the entire model as a project file in the background, once the earlier
+        // saves of the file have ended
+        this.awaitSaves(filePath);
+        this.saves.put(model.writeProjectAsync(this.model, filePath, false, this.listener),
+                file(filePath));
         break;
       case "add-layer":
         String layer_name = args[0];
@@ -129,12 +207,15 @@ public class CollageControllerImpl implements CollageController {
         int row = Integer.parseInt(args[2]);
         int col = Integer.parseInt(args[3]);
 
+        // wait for the image to be saved before it is read
+        this.awaitSaves(image);
         // Check if layer name exists in project
         try {
-          this.model.addImageToLayer(this.model.getLayer(layer),
-                  model.readPPM(image), row, col);
+          this.model.addImageToLayer(this.model.getLayer(layer), image, row, col);
         } catch (FileNotFoundException e) {
           this.printMessage("Image not found!\n");
+        } catch (IOException e) {
+          this.printMessage("Image could not be read!\n");
         } catch (IllegalArgumentException iae) {
           this.printMessage(iae.getMessage());
         }
@@ -142,15 +223,15 @@ public class CollageControllerImpl implements CollageController {
       case "save-image":
         // get file path to image
         filePath = args[0];
-        boolean saved = false;
-        // write a PPM file with the given file path
-        try {
-          saved = model.writeImage(this.model.saveImage(), filePath);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-        if (!saved) {
-          this.printMessage("Unsuccessful save. Please try again!");
+        // export the collage to the given file path in the background, a band at a time, once
+        // the earlier saves of the file have ended
+        this.awaitSaves(filePath);
+        this.saves.put(model.exportImageAsync(filePath, false, this.listener), file(filePath));
+        break;
+      case "cancel-save":
+        // the cancelled saves are kept until their thread has stopped writing their files
+        for (Future<?> save : this.saves.keySet()) {
+          save.cancel(true);
         }
         break;
       case "set-filter":
@@ -175,7 +256,7 @@ public class CollageControllerImpl implements CollageController {
    *
    * @param message - the given message to transmit
    */
-  public void printMessage(String message) {
+  public synchronized void printMessage(String message) {
     try {
       this.out.renderMessage(message);
     } catch (IOException e) {
@@ -197,6 +278,8 @@ public class CollageControllerImpl implements CollageController {
             + "Saves the current project to the given file path.\n";
     help_message += "save-image [file-path]                                  "
             + "Saves the current project as an image (Format: .ppm) to the given file path.\n";
+    help_message += "cancel-save                                             "
+            + "Cancels the saves that have not finished yet.\n";
     help_message += "add-image-to-layer [layer-name] [file-path] [row] [col] "
             + "Gets the given file path to the image and adds the image to the layer at "
             + "a specific location (row, column).\n";
@@ -13,6 +13,11 @@ public interface CollageFeatures {
    */
   void saveFile(String filePath);
 
+  /**
+   * Cancels the saves that have not finished yet.
+   */
+  void cancelSave();
+
   /**
    * Loads a Collage file given the location of that file.
    *
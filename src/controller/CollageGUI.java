@@ -2,14 +2,19 @@ package controller;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
 import model.CollageModel;
 import model.CollagePPM;
 import model.Filter;
+import model.SaveListener;
 import view.gui.GUIView;
 
 /**
@@ -18,6 +23,7 @@ import view.gui.GUIView;
 public class CollageGUI implements CollageFeatures, CollageController {
   CollageModel model;
   GUIView view;
+  private final List<Future<?>> saves = new ArrayList<Future<?>>();
 
   /**
    * Creates a GUI controller with the given model and view.
@@ -122,22 +128,66 @@ public class CollageGUI implements CollageFeatures, CollageController {
 
   /**
    * Saves an Image or Collage file based on the file path extensions.
+   * The file is written in the background, so the collage can still be edited while it is
+   * saved, and the progress of the save is shown in the view.
    *
    * @param filePath - the location of the saved file
    */
   @Override
   public void saveFile(String filePath) {
+    SaveListener listener = new SaveListener() {
+      @Override
+      public void progress(String filename, double fraction) {
+        SwingUtilities.invokeLater(() -> view.showProgress(
+                "Saving " + filename + ": " + Math.round(fraction * 100) + "%"));
+      }
+
+      @Override
+      public void saved(String filename) {
+        SwingUtilities.invokeLater(() -> view.showProgress(null));
+      }
+
+      @Override
+      public void failed(String filename, Exception e) {
+        SwingUtilities.invokeLater(() -> {
+          view.showProgress(null);
+          errorMsg(e.getMessage(), "Error in Saving Image");
+        });
+      }
+
+      @Override
+      public void cancelled(String filename) {
+        SwingUtilities.invokeLater(() -> {
+          view.showProgress(null);
+          warn("Saving cancelled.", "Save Cancel");
+        });
+      }
+    };
+
+    this.saves.removeIf(Future::isDone);
     if (filePath.contains(".collage")) {
-      model.writeProject(this.model, filePath);
+      this.saves.add(model.writeProjectAsync(this.model, filePath, false, listener));
     } else {
       try {
-        model.writeImage(this.model.saveImage(), filePath);
-      } catch (IOException e) {
+        // the layers are copied here and composited on the thread that saves them
+        this.saves.add(this.model.exportImageAsync(filePath, false, listener));
+      } catch (IllegalArgumentException e) {
         this.errorMsg(e.getMessage(), "Error in Saving Image");
       }
     }
   }
 
+  /**
+   * Cancels the saves that have not finished yet.
+   */
+  @Override
+  public void cancelSave() {
+    for (Future<?> save : this.saves) {
+      save.cancel(true);
+    }
+    this.saves.clear();
+  }
+
   /**
    * Loads a Collage file given the location of that file.
    *
@@ -247,8 +297,7 @@ public class CollageGUI implements CollageFeatures, CollageController {
   @Override
   public void addImageToLayer(String layer, String filePath, int row, int col) {
     try {
-      this.model.addImageToLayer(this.model.getLayer(layer),
-              model.readImages(filePath), row, col);
+      this.model.addImageToLayer(this.model.getLayer(layer), filePath, row, col);
     } catch (FileNotFoundException e) {
       this.errorMsg("File could not be found. Try again!", "File not Found");
     } catch (IllegalArgumentException e) {
@@ -3,7 +3,9 @@ package model;
 import java.awt.image.BufferedImage;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * An interface that represents the model of the Collage.
@@ -64,6 +66,13 @@ public interface CollageModel {
    */
   ILayer getLayer(String name) throws IllegalStateException;
 
+  /**
+   * Returns the layers of this model as they are stored, before their filters are applied.
+   *
+   * @return - an unmodifiable view of the layers, ordered from the bottom-most layer
+   */
+  List<ILayer> getLayers();
+
   /**
    * Adds a layer to this model given the name of the layer.
    *
@@ -82,6 +91,21 @@ public interface CollageModel {
    */
   void addImageToLayer(ILayer layer, IListOfPixel img, int row, int col);
 
+  /**
+   * Adds the image in the given file to the given layer at the given position.
+   * Only the part of the image that lands on the layer is read from the file and decoded.
+   *
+   * @param layer    - the given layer
+   * @param filename - the path of the image file
+   * @param row      - the x-coordinate of the image
+   * @param col      - the y-coordinate of the image
+   * @throws IOException              - when the file could not be found or read
+   * @throws IllegalArgumentException - when the layer or file name is null OR
+   *                                  when the file is not a valid image
+   */
+  void addImageToLayer(ILayer layer, String filename, int row, int col)
+          throws IOException, IllegalArgumentException;
+
   /**
    * Sets the Filter of the given layer.
    *
@@ -104,6 +128,27 @@ public interface CollageModel {
    */
   List<ILayer> renderLayers();
 
+  /**
+   * Writes the text representation of the project, the same as toString, to the given output.
+   * The layers are rendered one at a time and written a row at a time, so the whole text is
+   * never held in memory.
+   *
+   * @param out - the output to write to
+   * @throws IOException              - when the output could not be written
+   * @throws IllegalArgumentException - when the output is null
+   */
+  void writeText(Appendable out) throws IOException, IllegalArgumentException;
+
+  /**
+   * Writes the text representation of the project, the same as toString, to the given stream
+   * as ASCII. The stream is flushed but not closed.
+   *
+   * @param out - the stream to write to
+   * @throws IOException              - when the stream could not be written
+   * @throws IllegalArgumentException - when the stream is null
+   */
+  void writeText(OutputStream out) throws IOException, IllegalArgumentException;
+
   /**
    * Return the model in a certain format.
    *
@@ -112,22 +157,42 @@ public interface CollageModel {
   String toString();
 
   /**
-   * Read an image file in the PPM format and return the image.
+   * Read an image file in the PPM format, plain (P3) or binary (P6), and return the image.
    *
    * @param filename the path of the file.
    * @return - the image
-   * @throws FileNotFoundException if the given file is not found
+   * @throws FileNotFoundException    - if the given file is not found
+   * @throws IllegalArgumentException - if the file could not be read or is not a valid PPM file
+   */
+  IListOfPixel readPPM(String filename) throws FileNotFoundException, IllegalArgumentException;
+
+  /**
+   * Reads a Collage project file to be loaded in, in the binary (C2) or plain text (C1) format.
+   *
+   * @param filename - the location of the file
+   * @return - the model from the given project file
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when a binary project file could not be read
    */
-  IListOfPixel readPPM(String filename) throws FileNotFoundException;
+  CollageModel readProject(String filename)
+          throws FileNotFoundException, IllegalArgumentException;
 
   /**
-   * Reads a Collage project file to be loaded in.
+   * Reads a Collage project file to be loaded in, in the binary (C2) or plain text (C1) format.
    *
    * @param filename - the location of the file
+   * @param lazy     - whether the layers of a binary project file are mapped from the file and
+   *                 only decoded the first time they are used, instead of all being decoded now.
+   *                 Some systems, such as Windows, cannot replace a file while it is mapped, so
+   *                 a lazy project may not be saved over the file it was read from
    * @return - the model from the given project file
-   * @throws FileNotFoundException - could not find the file given the file path
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when a binary project file could not be read
    */
-  CollageModel readProject(String filename) throws FileNotFoundException;
+  CollageModel readProject(String filename, boolean lazy)
+          throws FileNotFoundException, IllegalArgumentException;
 
   /**
    * Reads an image file that are supported by Java and returns the image.
@@ -139,13 +204,51 @@ public interface CollageModel {
   IListOfPixel readImages(String filename) throws IOException;
 
   /**
-   * Writes a project file given a model and the file path.
+   * Writes a project file given a model and the file path, in the binary (C2) format.
    *
    * @param model    - the given model
    * @param filename - the saved location of the file
    */
   void writeProject(CollageModel model, String filename);
 
+  /**
+   * Writes a project file given a model and the file path, in the binary (C2) format.
+   * The stored layers and the names of their filters are written without rendering them.
+   *
+   * @param model    - the given model
+   * @param filename - the saved location of the file
+   * @param preview  - whether the flattened collage is embedded in the file as a preview
+   */
+  void writeProject(CollageModel model, String filename, boolean preview);
+
+  /**
+   * Writes a project file given a model and the file path on a background thread.
+   * The layers of the model are copied first, so the model can be changed while the file is
+   * written, and a failed or cancelled save leaves the file as it was.
+   *
+   * @param model    - the given model
+   * @param filename - the saved location of the file
+   * @param preview  - whether the flattened collage is embedded in the file as a preview
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null
+   */
+  Future<?> writeProjectAsync(CollageModel model, String filename, boolean preview,
+                              SaveListener listener) throws IllegalArgumentException;
+
+  /**
+   * Reads the flattened preview embedded in a binary (C2) project file, without reading the
+   * layers of the project.
+   *
+   * @param filename - the location of the file
+   * @return - the flattened collage, or null if the file has no preview
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when the file is not a binary project file
+   */
+  IListOfPixel readProjectPreview(String filename)
+          throws FileNotFoundException, IllegalArgumentException;
+
   /**
    * Writes an image file given an IListOfPixel object and the file path.
    *
@@ -159,8 +262,73 @@ public interface CollageModel {
   boolean writeImage(IListOfPixel img, String filename)
           throws IOException, IllegalArgumentException;
 
+  /**
+   * Writes an image file given an IListOfPixel object and the file path.
+   *
+   * @param img      - the compressed image object
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @return - returns if the image is saved properly
+   * @throws IOException - Error in writing to an image file
+   * @throws IllegalArgumentException - When the input is null or
+   *                                    when the file extension is not supported
+   */
+  boolean writeImage(IListOfPixel img, String filename, boolean binary)
+          throws IOException, IllegalArgumentException;
+
+  /**
+   * Writes an image file given an IListOfPixel object and the file path on a background thread.
+   * The image must not change while it is written, such as the new layer saveImage returns.
+   *
+   * @param img      - the image to write
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null OR
+   *                                  when the file extension is not supported
+   */
+  Future<?> writeImageAsync(IListOfPixel img, String filename, boolean binary,
+                            SaveListener listener) throws IllegalArgumentException;
+
+  /**
+   * Exports the collage to an image file without compositing the whole canvas at once.
+   * PPM and PNG files are composited and encoded a band of rows at a time, so only a few bands
+   * are held in memory. Other formats are written from the image returned by saveImage.
+   *
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @return - returns if the image is saved properly
+   * @throws IOException - Error in writing to an image file
+   * @throws IllegalArgumentException - When the input is null or
+   *                                    when the file extension is not supported
+   */
+  boolean exportImage(String filename, boolean binary)
+          throws IOException, IllegalArgumentException;
+
+  /**
+   * Exports the collage to an image file like exportImage on a background thread.
+   * The layers of the model are copied first, so the model can be changed while the file is
+   * written.
+   *
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null OR
+   *                                  when the file extension is not supported
+   */
+  Future<?> exportImageAsync(String filename, boolean binary, SaveListener listener)
+          throws IllegalArgumentException;
+
   /**
    * Creates a rendered image object from the given IListOfPixel object.
+   * The image may share its colors with the given object, such as the layer returned by
+   * saveImage, instead of copying them.
    *
    * @param img - the IListOfPixel object
    * @return - the rendered image
@@ -1,42 +1,146 @@
 package model;
 
-import java.awt.Color;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
+import util.ImageUtil;
+import util.PPMTokenizer;
+import util.PPMWriter;
 import util.PixelArrayUtil;
 
 /**
  * A class that represents a CollageModel with a PPM format.
  */
 public class CollagePPM implements CollageModel {
+  // the default number of bytes the cached composites of the layers may use
+  private static final long CACHE_BUDGET = 256L * 1024 * 1024;
+  // the default number of bytes the cached decoded image files may use
+  private static final long IMAGE_CACHE_BUDGET = 64L * 1024 * 1024;
+  // the number of bytes of a binary PPM file that are read at a time
+  private static final int BINARY_BLOCK = 1 << 16;
+
   private int height;
   private int width;
   private int maxValue;
   private List<ILayer> layers;
+  private final int parallelism;
+  private ForkJoinPool pool;
+  private ExecutorService saver;
+  private final CompositeCache cache;
+  private final ImageCache images;
+  private final long tileBudget;
+  private TileStore tiles;
 
   /**
    * Creates a CollagePPM model and instantiates necessary items.
+   * Rendering uses every available processor.
    */
   public CollagePPM() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a CollagePPM model that renders with the given number of threads.
+   * A parallelism of one renders on the calling thread.
+   *
+   * @param parallelism - the number of threads used to render the collage
+   * @throws IllegalArgumentException - when the parallelism is less than one
+   */
+  public CollagePPM(int parallelism) throws IllegalArgumentException {
+    this(parallelism, CACHE_BUDGET);
+  }
+
+  /**
+   * Creates a CollagePPM model that renders with the given number of threads and caches the
+   * composite below each layer within the given number of bytes.
+   * A parallelism of one renders on the calling thread.
+   *
+   * @param parallelism - the number of threads used to render the collage
+   * @param cacheBudget - the number of bytes the cached composites may use
+   * @throws IllegalArgumentException - when the parallelism is less than one OR
+   *                                  when the cache budget is negative
+   */
+  public CollagePPM(int parallelism, long cacheBudget) throws IllegalArgumentException {
+    this(parallelism, cacheBudget, Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+   * Creates a CollagePPM model that renders with the given number of threads, caches the
+   * composite below each layer within the given number of bytes, and keeps the layers of a
+   * canvas too large for the given number of bytes in tiles on disk.
+   * The layers of a canvas are stored in a scratch file, with at most the tile budget of their
+   * tiles in memory, once its layers and the composites cached for them would not all fit in
+   * the tile budget. The other constructors use a quarter of the memory the program may use as
+   * the tile budget.
+   *
+   * @param parallelism - the number of threads used to render the collage
+   * @param cacheBudget - the number of bytes the cached composites may use
+   * @param tileBudget  - the number of bytes the tiles of a canvas kept on disk may use in memory
+   * @throws IllegalArgumentException - when the parallelism is less than one OR
+   *                                  when either budget is negative
+   */
+  public CollagePPM(int parallelism, long cacheBudget, long tileBudget)
+          throws IllegalArgumentException {
+    this(parallelism, cacheBudget, tileBudget, new ImageCache(IMAGE_CACHE_BUDGET));
+  }
+
+  /*
+   * Helper constructor that creates a model that shares the given cache of decoded image files,
+   * such as the model of a project read by this model.
+   */
+  private CollagePPM(int parallelism, long cacheBudget, long tileBudget, ImageCache images)
+          throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Invalid parallelism!");
+    }
+    if (tileBudget < 0) {
+      throw new IllegalArgumentException("Invalid tile budget!");
+    }
     this.layers = new ArrayList<ILayer>();
     this.maxValue = 255;
+    this.parallelism = parallelism;
+    this.cache = new CompositeCache(cacheBudget);
+    this.images = images;
+    this.tileBudget = tileBudget;
   }
 
   /**
@@ -56,22 +160,18 @@ public class CollagePPM implements CollageModel {
     this.width = width;
     this.maxValue = maxValue;
 
-    //create a white background layer.
-    IPixel[][] background = new Pixel[this.height][this.width];
-    for (int i = 0; i < this.height; i++) {
-      for (int j = 0; j < this.width; j++) {
-        background[i][j] = new Pixel(this.maxValue, this.maxValue,
-                this.maxValue, this.maxValue, new Posn(i, j));
-      }
-    }
+    // the layers are kept in memory until they would no longer fit
+    this.tiles = null;
 
-    // create the background layer object with a white background.
-    Layer backgroundLayer = new Layer("background", this.height, this.width, this.maxValue);
-    backgroundLayer.setMatrix(background);
+    // create the background layer object with a white background, which only stores the color
+    // until it is drawn on.
+    int white = Raster.pack(this.maxValue, this.maxValue, this.maxValue, this.maxValue);
+    ILayer backgroundLayer = this.createLayer("background", white);
     backgroundLayer.setFilter(Filter.NORMAL);
 
     // add the layer object to the list.
     this.layers.add(backgroundLayer);
+    this.cache.clear();
   }
 
   /**
@@ -141,6 +241,15 @@ public class CollagePPM implements CollageModel {
     throw new IllegalStateException("Invalid Layer name! Name: " + name);
   }
 
+  /**
+   * Returns the layers of this model as they are stored, before their filters are applied.
+   *
+   * @return - an unmodifiable view of the layers, ordered from the bottom-most layer
+   */
+  public List<ILayer> getLayers() {
+    return Collections.unmodifiableList(this.layers);
+  }
+
   /**
    * Adds a layer to this model given the name of the layer.
    *
@@ -148,15 +257,65 @@ public class CollagePPM implements CollageModel {
    * @throws IllegalArgumentException - when the given layer name already exists in this model
    */
   public void addLayer(String layer) throws IllegalArgumentException {
-    ILayer newLayer = new Layer(layer, this.height, this.width, this.maxValue);
     for (ILayer l : this.layers) {
       if (l.getName().equalsIgnoreCase(layer)) {
         throw new IllegalArgumentException("Layer name already exists!");
       }
     }
+    ILayer newLayer = this.createLayer(layer,
+            Raster.pack(this.maxValue, this.maxValue, this.maxValue, 0));
     this.layers.add(newLayer);
   }
 
+  /*
+   * Helper method that creates a layer of the canvas where every color is the given color,
+   * with its tiles on disk when the canvas does not fit in memory.
+   */
+  private ILayer createLayer(String name, int color) throws IllegalArgumentException {
+    return new Layer(name, this.createRaster(color), this.maxValue, color);
+  }
+
+  /**
+   * Creates the raster of a new layer of the canvas where every color is the given color.
+   * The layers of the canvas are kept in memory as long as they, together with the composites
+   * the cache may keep for them, would fit in the tile budget of this model. From the first
+   * layer that would not fit, the new layers keep their tiles in a scratch file, and the layers
+   * already in memory stay there.
+   *
+   * @param color - the packed ARGB color of every position of the raster
+   * @return - a raster of the size of the canvas
+   */
+  IRaster createRaster(int color) {
+    if (Objects.isNull(this.tiles) && this.projectedSize(this.layers.size() + 1)
+            > this.tileBudget) {
+      this.tiles = new TileStore(this.tileBudget);
+    }
+    if (Objects.isNull(this.tiles)) {
+      return new TiledRaster(this.height, this.width, color);
+    }
+    return new DiskRaster(this.tiles, this.height, this.width, color);
+  }
+
+  /*
+   * Helper method that returns the most memory the given number of layers of the canvas and
+   * their cached composites could use once every layer is drawn on.
+   */
+  private long projectedSize(int layers) {
+    long layerSize = (long) this.height * this.width * Integer.BYTES;
+    long cached = Math.min(this.cache.getBudget(),
+            layers * CompositeCache.levelSize(this.height, this.width));
+    return layers * layerSize + cached;
+  }
+
+  /**
+   * Returns the store that keeps the tiles of the layers of this canvas on disk.
+   *
+   * @return - the tile store, or null when the layers are kept in memory
+   */
+  TileStore getTileStore() {
+    return this.tiles;
+  }
+
   /**
    * Adds an image to the given layer given the image and the position.
    *
@@ -167,8 +326,51 @@ public class CollagePPM implements CollageModel {
    */
   public void addImageToLayer(ILayer layer, IListOfPixel img, int row, int col)
           throws IllegalArgumentException {
-    layer.addImage(new Image(PixelArrayUtil.convertToMatrix(img.render(),
-            img.getHeight(), img.getWidth()), new Posn(row, col)));
+    // copy the colors of the image row by row
+    Raster raster = new Raster(img.getHeight(), img.getWidth());
+    int[] buffer = new int[img.getWidth()];
+    for (int i = 0; i < img.getHeight(); i++) {
+      img.getRow(i, buffer);
+      raster.setRow(i, buffer);
+    }
+    layer.addImage(new Image(raster, img.getMax(), new Posn(row, col)));
+  }
+
+  /**
+   * Adds the image in the given file to the given layer at the given position.
+   * An image that fits in the cache of decoded images is decoded whole and kept, so placing the
+   * same unchanged file again does not read or decode it. Otherwise only the part of the image
+   * that lands on the layer is read from the file and decoded.
+   *
+   * @param layer    - the given layer
+   * @param filename - the path of the image file
+   * @param row      - the x-coordinate of the image
+   * @param col      - the y-coordinate of the image
+   * @throws IOException              - when the file could not be found or read
+   * @throws IllegalArgumentException - when the layer or file name is null OR
+   *                                  when the file is not a valid image
+   */
+  public void addImageToLayer(ILayer layer, String filename, int row, int col)
+          throws IOException, IllegalArgumentException {
+    if (Objects.isNull(layer) || Objects.isNull(filename)) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
+
+    ImageCache.Key key = ImageCache.keyOf(new File(filename));
+    Raster cached = this.images.get(key);
+    if (Objects.nonNull(cached)) {
+      layer.addImage(new Image(cached, 255, new Posn(row, col)));
+      return;
+    }
+
+    // the canvas in the coordinates of the image
+    Rectangle canvas = new Rectangle(-col, -row, layer.getWidth(), layer.getHeight());
+    IImage img = this.readImages(filename, canvas, key);
+    if (Objects.nonNull(img)) {
+      IPosn offset = img.getPos();
+      img.changePos(new Posn(row + offset.getRow(), col + offset.getCol()));
+      layer.addImage(img);
+    }
   }
 
   /**
@@ -191,21 +393,140 @@ public class CollagePPM implements CollageModel {
 
   /**
    * Save the layers as one layer.
+   * The composite of the layers below each layer is cached, so an edit to a layer only
+   * composites the layers from it up, and only in the regions of the layers that changed since
+   * the last save. The cache is kept within the budget of this model.
+   * The layers under an opaque layer are skipped where they cannot show through.
    *
    * @return - the combined layers
    */
   public ILayer saveImage() {
-    // set the background as the first since it's the lowest
-    List<ILayer> filteredLayers = this.renderLayers();
-    ILayer combined = filteredLayers.get(0);
+    Compositor compositor = new Compositor(this.layers, this.height, this.width);
+    int count = this.layers.size();
 
-    // go through the list of layers
-    for (int i = 1; i < filteredLayers.size(); i++) {
-      combined = filteredLayers.get(i).combine(combined);
+    // forget the levels of layers that were removed or moved
+    this.cache.retain(this.layers);
+
+    // gather the regions that changed since the last save
+    List<Rectangle> dirty = new ArrayList<Rectangle>();
+    for (ILayer l : this.layers) {
+      Rectangle region = l.takeDirtyRegion();
+      if (Objects.nonNull(region)) {
+        dirty.add(region);
+      }
+    }
+
+    // update the cached levels above the last unchanged level in the changed regions
+    Raster[] composites = new Raster[count];
+    Raster[] filtered = new Raster[count];
+    for (Map.Entry<Integer, CompositeCache.Level> entry : this.cache.getLevels().entrySet()) {
+      composites[entry.getKey()] = entry.getValue().getComposite();
+      filtered[entry.getKey()] = entry.getValue().getFiltered();
+    }
+    for (Rectangle region : mergeRegions(dirty)) {
+      int start = this.cache.currentBelow(this.layers, count, region) + 1;
+      if (start > 0) {
+        this.cache.get(start - 1);
+      }
+      this.cache.composited(start, region,
+              compositor.composite(composites, filtered, start, region, this.getPool()));
+    }
+    for (CompositeCache.Level level : this.cache.getLevels().values()) {
+      level.record();
+    }
+
+    // composite the whole canvas above the highest complete level when the top level is
+    // missing or was skipped under an opaque layer that has been removed
+    Rectangle canvas = new Rectangle(0, 0, this.width, this.height);
+    int start = this.cache.currentBelow(this.layers, count + 1, canvas) + 1;
+    if (start < count) {
+      long size = CompositeCache.levelSize(this.height, this.width);
+      long free = this.cache.getFree();
+      List<CompositeCache.Level> created = new ArrayList<CompositeCache.Level>();
+      for (int i = count - 1; i >= start; i--) {
+        if (Objects.isNull(composites[i]) && (i == count - 1 || free >= size)) {
+          CompositeCache.Level level = new CompositeCache.Level(this.layers, i,
+                  this.height, this.width);
+          composites[i] = level.getComposite();
+          filtered[i] = level.getFiltered();
+          created.add(0, level);
+          free -= size;
+        }
+      }
+      Rectangle[] culled = compositor.composite(composites, filtered, start, canvas,
+              this.getPool());
+
+      // cache the new levels from the bottom so the top level is the most recently used
+      for (CompositeCache.Level level : created) {
+        this.cache.put(level);
+      }
+      this.cache.composited(start, canvas, culled);
+    }
+    Raster composite = this.cache.get(count - 1).getComposite().copy();
+
+    // a single layer keeps its own name and filter
+    if (this.layers.size() == 1) {
+      ILayer background = this.layers.get(0);
+      ILayer combined = Layer.rendered(background.getName(), composite, this.maxValue);
+      combined.setFilter(background.getFilter());
+      return combined;
     }
 
     // returns the rendered combined layer
-    return combined;
+    return Layer.rendered("combined", composite, this.maxValue);
+  }
+
+  /**
+   * Merges the given regions until none of them overlap.
+   *
+   * @param regions - the regions to merge
+   * @return - the merged regions
+   */
+  private static List<Rectangle> mergeRegions(List<Rectangle> regions) {
+    List<Rectangle> merged = new ArrayList<Rectangle>();
+    for (Rectangle region : regions) {
+      Rectangle current = new Rectangle(region);
+      // absorb every merged region that overlaps, which can grow the current region
+      boolean changed = true;
+      while (changed) {
+        changed = false;
+        for (Iterator<Rectangle> iter = merged.iterator(); iter.hasNext(); ) {
+          Rectangle other = iter.next();
+          if (other.intersects(current)) {
+            current.add(other);
+            iter.remove();
+            changed = true;
+          }
+        }
+      }
+      merged.add(current);
+    }
+    return merged;
+  }
+
+  /**
+   * Returns the cache of the image files decoded by this model and the projects it reads.
+   *
+   * @return - the cache of decoded images
+   */
+  ImageCache getImageCache() {
+    return this.images;
+  }
+
+  /**
+   * Returns the pool used to render this model and decode the layers of the projects it reads,
+   * or null when rendering is serial.
+   *
+   * @return - the pool shared by the renders of this model
+   */
+  private ForkJoinPool getPool() {
+    if (this.parallelism == 1) {
+      return null;
+    }
+    if (Objects.isNull(this.pool)) {
+      this.pool = new ForkJoinPool(this.parallelism);
+    }
+    return this.pool;
   }
 
   /**
@@ -216,8 +537,8 @@ public class CollagePPM implements CollageModel {
   public List<ILayer> renderLayers() {
     // create a copy of the current layers
     List<ILayer> renderedLayers = new ArrayList<ILayer>();
-    ILayer prev = this.layers.get(0); // get the background as the first layer
-    renderedLayers.add(prev.applyFilter(null)); // add the background
+    ILayer prev = this.layers.get(0).applyFilter(null); // filter the background first
+    renderedLayers.add(prev); // add the background
 
     // apply the filter to each layer
     if (this.layers.size() > 1) {
@@ -236,23 +557,93 @@ public class CollagePPM implements CollageModel {
    * @return - the format of the PPM model as a String
    */
   public String toString() {
-    String project = "";
+    StringBuilder project = new StringBuilder();
+    try {
+      this.writeText(project);
+    } catch (IOException e) {
+      // a StringBuilder is never closed, so appending to it cannot fail
+      throw new IllegalStateException(e);
+    }
+    return project.toString();
+  }
+
+  /**
+   * Writes the text representation of the project, the same as toString, to the given output.
+   * Each layer is rendered and written a row at a time, so only two rows of colors and one row
+   * of text are held in memory however large the canvas is.
+   *
+   * @param out - the output to write to
+   * @throws IOException              - when the output could not be written
+   * @throws IllegalArgumentException - when the output is null
+   */
+  public void writeText(Appendable out) throws IOException, IllegalArgumentException {
+    if (Objects.isNull(out)) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
 
     // Adds project information
-    project += (this.width + " " + this.height + "\n");
-    project += (this.maxValue + "\n");
-
-    // Adds layer information
-    for (ILayer l : this.renderLayers()) {
-      project += (l.getName() + " " + l.getFilter().getOption() + "\n");
-      for (IPixel p : l.render()) {
-        project += (p.rgbaString() + " ");
+    out.append(Integer.toString(this.width)).append(' ')
+            .append(Integer.toString(this.height)).append('\n');
+    out.append(Integer.toString(this.maxValue)).append('\n');
+
+    // Adds layer information, rendering each layer over the one below it like renderLayers
+    StringBuilder chunk = new StringBuilder();
+    int[] first = new int[this.width];
+    int[] second = new int[this.width];
+    for (int index = 0; index < this.layers.size(); index++) {
+      ILayer layer = this.layers.get(index);
+      out.append(layer.getName()).append(' ').append(layer.getFilter().getOption()).append('\n');
+      for (int i = 0; i < this.height; i++) {
+        for (int argb : this.renderRow(index, i, first, second)) {
+          chunk.append(Raster.red(argb)).append(' ').append(Raster.green(argb)).append(' ')
+                  .append(Raster.blue(argb)).append(' ').append(Raster.alpha(argb)).append(' ');
+        }
+        out.append(chunk);
+        chunk.setLength(0);
       }
-      project += "\n";
+      out.append('\n');
     }
+  }
 
-    // return the string of the project
-    return project;
+  /*
+   * Helper method that renders a row of the layer at the given index like renderLayers, filtering
+   * the row of each layer over the row rendered below it. Rendering starts from the highest layer
+   * at or below the index whose filter does not read the layer below, and the given rows are
+   * reused for the rows of every layer. Returns the given row that holds the rendered row.
+   */
+  private int[] renderRow(int index, int row, int[] first, int[] second) {
+    int start = index;
+    while (start > 0 && this.layers.get(start).getFilter().readsBelow()) {
+      start--;
+    }
+    int[] prev = null;
+    int[] curr = first;
+    for (int j = start; j <= index; j++) {
+      ILayer layer = this.layers.get(j);
+      layer.getRow(row, curr);
+      layer.getFilter().applyRow(curr, prev, curr, 0, this.width, this.maxValue);
+      prev = curr;
+      curr = curr == first ? second : first;
+    }
+    return prev;
+  }
+
+  /**
+   * Writes the text representation of the project, the same as toString, to the given stream
+   * as ASCII through a buffer. The stream is flushed but not closed.
+   *
+   * @param out - the stream to write to
+   * @throws IOException              - when the stream could not be written
+   * @throws IllegalArgumentException - when the stream is null
+   */
+  public void writeText(OutputStream out) throws IOException, IllegalArgumentException {
+    if (Objects.isNull(out)) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII),
+            BINARY_BLOCK);
+    this.writeText(writer);
+    writer.flush();
   }
 
   /**
@@ -294,94 +685,299 @@ public class CollagePPM implements CollageModel {
 
   /**
    * Read an image file in the PPM format and return the image.
+   * Both plain (P3) and binary (P6) files are read, where a binary file with a max value over
+   * 255 stores two bytes per channel. The file is streamed through a tokenizer that skips
+   * comments as it goes and the channels are packed straight into the raster of the image.
    *
    * @param filename the path of the file.
    * @return - the image
-   * @throws FileNotFoundException if the given file is not found
+   * @throws FileNotFoundException    - if the given file is not found
+   * @throws IllegalArgumentException - if the file could not be read or is not a valid PPM file
    */
-  public IListOfPixel readPPM(String filename) throws FileNotFoundException {
-    Scanner sc;
+  public IListOfPixel readPPM(String filename)
+          throws FileNotFoundException, IllegalArgumentException {
+    return this.readPPM(filename, null, null);
+  }
 
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(this.removeComments(filename));
+  /*
+   * Helper method that reads the part of a PPM file inside the given region, or all of it when
+   * the region is null. The position of the returned image is the row and column of its top
+   * left corner in the file, and null is returned when none of the file is inside the region.
+   * When a key is given and the image fits in the cache of decoded images, all of it is read
+   * and cached under the key.
+   */
+  private IImage readPPM(String filename, Rectangle region, ImageCache.Key key)
+          throws FileNotFoundException, IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
 
-    String token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
+    PPMTokenizer tokens;
+    try {
+      tokens = new PPMTokenizer(new FileInputStream(filename));
+    } catch (FileNotFoundException e) {
+      throw new FileNotFoundException("File " + filename + " not found!");
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-    Pixel[][] pixelList = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
+
+    try (PPMTokenizer in = tokens) {
+      String token = in.nextToken();
+      boolean binary = token.equals("P6");
+      if (!binary && !token.equals("P3")) {
+        System.out.println("Invalid PPM file: plain RAW file should begin with P3");
+      }
+      int width = in.nextInt();
+      int height = in.nextInt();
+      int maxValue = in.nextInt();
+
+      // only the rows and columns inside the region are kept
+      Rectangle visible = new Rectangle(0, 0, width, height);
+      boolean cached = Objects.nonNull(key) && this.images.fits(height, width);
+      if (Objects.nonNull(region)) {
+        if (!visible.intersects(region)) {
+          return null;
+        }
+        if (!cached) {
+          visible = visible.intersection(region);
+        }
+      }
+
+      // every color of a PPM image is opaque, with an alpha of the max value of the file
+      Raster raster = new Raster(visible.height, visible.width);
+      if (binary) {
+        readBinaryPPM(in, raster.getData(), width, maxValue, visible);
+      } else {
+        readPlainPPM(in, raster.getData(), width, maxValue, visible);
+      }
+      if (cached) {
+        this.images.put(key, raster);
+      }
+
+      // return the new image
+      return new Image(raster, 255, new Posn(visible.y, visible.x));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("PPM file could not be read.");
+    }
+  }
+
+  /*
+   * Helper method that reads the channels of a plain PPM file up to the last visible row,
+   * keeping the visible ones. Channels of a file with a max value over 255 are scaled down to
+   * the 8 bit channels of the raster.
+   */
+  private static void readPlainPPM(PPMTokenizer in, int[] data, int width, int maxValue,
+                                   Rectangle visible) throws IOException {
+    for (int i = 0; i < visible.y + visible.height; i++) {
+      int index = (i - visible.y) * visible.width - visible.x;
+      boolean rowVisible = i >= visible.y;
       for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        pixelList[i][j] = new Pixel(r, g, b, maxValue, new Posn(i, j));
+        int r = in.nextInt();
+        int g = in.nextInt();
+        int b = in.nextInt();
+        if (!rowVisible || j < visible.x || j >= visible.x + visible.width) {
+          continue;
+        }
+        if (maxValue > 255) {
+          data[index + j] = Raster.pack(scaleSample(r, maxValue), scaleSample(g, maxValue),
+                  scaleSample(b, maxValue), 255);
+        } else {
+          data[index + j] = Raster.pack(r, g, b, maxValue);
+        }
       }
     }
+  }
 
-    // Create this new layer
-    IListOfPixel newImage = new Image(pixelList, new Posn(0, 0));
+  /*
+   * Helper method that reads the channels of a binary PPM file in blocks of whole rows,
+   * skipping the rows above the visible ones and stopping after the last visible row.
+   * Channels of a file with a max value over 255 are two bytes, most significant first, and
+   * are scaled down to the 8 bit channels of the raster.
+   */
+  private static void readBinaryPPM(PPMTokenizer in, int[] data, int width, int maxValue,
+                                    Rectangle visible)
+          throws IOException, IllegalArgumentException {
+    if (maxValue <= 0 || maxValue > 65535) {
+      throw new IllegalArgumentException("Invalid PPM file!");
+    }
+    int sampleSize = maxValue > 255 ? 2 : 1;
+    int rowSize = width * 3 * sampleSize;
+    int rows = Math.max(1, BINARY_BLOCK / rowSize);
+    byte[] block = new byte[rows * rowSize];
+    in.skipBytes((long) visible.y * rowSize);
 
-    // return the new model
-    return newImage;
+    for (int start = 0; start < visible.height; start += rows) {
+      int count = Math.min(rows, visible.height - start);
+      in.readBytes(block, 0, count * rowSize);
+      for (int r = 0; r < count; r++) {
+        int index = (start + r) * visible.width;
+        int k = r * rowSize + visible.x * 3 * sampleSize;
+        for (int j = 0; j < visible.width; j++, k += 3 * sampleSize) {
+          if (sampleSize == 1) {
+            data[index + j] = Raster.pack(block[k] & 0xFF, block[k + 1] & 0xFF,
+                    block[k + 2] & 0xFF, maxValue);
+          } else {
+            data[index + j] = Raster.pack(scaleSample(block, k, maxValue),
+                    scaleSample(block, k + 2, maxValue), scaleSample(block, k + 4, maxValue), 255);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * Helper method that reads a two byte channel and scales it from the given max value to 255.
+   */
+  private static int scaleSample(byte[] block, int index, int maxValue) {
+    return scaleSample(((block[index] & 0xFF) << 8) | (block[index + 1] & 0xFF), maxValue);
+  }
+
+  /*
+   * Helper method that scales a channel from the given max value to 255.
+   */
+  private static int scaleSample(int sample, int maxValue) {
+    return (int) (((long) sample * 255 + maxValue / 2) / maxValue);
+  }
+
+  /*
+   * Helper method that scales an 8 bit channel up to the given max value of a file when it is
+   * over 255, and keeps it as it is otherwise.
+   */
+  private static int fileSample(int channel, int maxValue) {
+    return maxValue > 255 ? (channel * maxValue + 127) / 255 : channel;
   }
 
   /**
    * Reads an image file that are supported by Java and returns the image.
+   * The colors are copied a row at a time from the arrays behind the decoded image.
    *
    * @param filename - the file location of the image
    * @return - the image
    * @throws IOException - when there's
    */
   public IListOfPixel readImages(String filename) throws IOException {
-    // get the file extension
-    String extension = "";
-    int index = filename.lastIndexOf(".");
-    if (index > 0) {
-      extension = filename.substring(index + 1);
-    }
-
     // check extension
-    if (extension.equals("ppm")) {
+    if (extension(filename).equals("ppm")) {
       return this.readPPM(filename);
     }
 
     // file is not a ppm
     BufferedImage input = ImageIO.read(new File(filename));
-    int width = input.getWidth();
-    int height = input.getHeight();
-
-    // Create the 2d aray of pixel
-    Pixel[][] pixelList = new Pixel[height][width];
-    for (int i = input.getMinX(); i < width; i++) {
-      for (int j = input.getMinY(); j < height; j++) {
-        Color c;
-        if (extension.equals("png")) {
-          c = new Color(input.getRGB(i,j), true);
-        } else {
-          c = new Color(input.getRGB(i,j));
+    if (Objects.isNull(input)) {
+      throw new IOException("Image file " + filename + " could not be read.");
+    }
+
+    // only a png keeps the alpha of its colors
+    return new Image(ImageUtil.toRaster(input, extension(filename).equals("png")), 255,
+            new Posn(0, 0));
+  }
+
+  /*
+   * Helper method that decodes only the part of an image file inside the given region.
+   * The position of the returned image is the row and column of its top left corner in the
+   * file, and null is returned when none of the file is inside the region.
+   * When a key is given and the image fits in the cache of decoded images, all of it is
+   * decoded and cached under the key.
+   */
+  private IImage readImages(String filename, Rectangle region, ImageCache.Key key)
+          throws IOException {
+    if (extension(filename).equals("ppm")) {
+      return this.readPPM(filename, region, key);
+    }
+
+    File file = new File(filename);
+    if (!file.isFile()) {
+      throw new FileNotFoundException("File " + filename + " not found!");
+    }
+    try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+      Iterator<ImageReader> readers = Objects.isNull(stream)
+              ? Collections.emptyIterator() : ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("Image file " + filename + " could not be read.");
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        Rectangle visible = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+        if (!visible.intersects(region)) {
+          return null;
+        }
+        boolean cached = Objects.nonNull(key) && this.images.fits(visible.height, visible.width);
+        if (!cached) {
+          visible = visible.intersection(region);
         }
-        pixelList[j][i] = new Pixel(c.getRed(), c.getGreen(),
-                c.getBlue(), c.getAlpha(), new Posn(j,i));
+
+        // the reader only decodes the rows and columns of the visible region
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(visible);
+        BufferedImage input = reader.read(0, param);
+        Raster raster = ImageUtil.toRaster(input, extension(filename).equals("png"));
+        if (cached) {
+          this.images.put(key, raster);
+        }
+        return new Image(raster, 255, new Posn(visible.y, visible.x));
+      } finally {
+        reader.dispose();
       }
     }
+  }
 
-    // create IListOfPixel Object
-    IListOfPixel img = new Image(pixelList, new Posn(0,0));
-    return img;
+  /*
+   * Helper method that returns the extension of the given file name, or an empty string.
+   */
+  private static String extension(String filename) {
+    int index = filename.lastIndexOf(".");
+    return index > 0 ? filename.substring(index + 1) : "";
   }
 
   /**
    * Reads a Collage project file to be loaded in.
+   * The layers of a binary (C2) project file are all decoded now, so the project does not keep
+   * the file open and can be saved over it.
    *
    * @param filename - the location of the file
    * @return - the model from the given project file
-   * @throws FileNotFoundException - could not find the file given the file path
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when a binary project file could not be read
    */
-  public CollageModel readProject(String filename) throws FileNotFoundException {
+  public CollageModel readProject(String filename)
+          throws FileNotFoundException, IllegalArgumentException {
+    return this.readProject(filename, false);
+  }
+
+  /**
+   * Reads a Collage project file to be loaded in.
+   * Binary (C2) project files are read through their table of contents, and plain text (C1)
+   * project files can still be imported.
+   *
+   * @param filename - the location of the file
+   * @param lazy     - whether the layers of a binary project file are mapped from the file and
+   *                 only decoded the first time they are used, instead of all being decoded now
+   *                 on the render threads of this model. Some systems, such as Windows, cannot
+   *                 replace a file while it is mapped, so a lazy project may not be saved over
+   *                 the file it was read from
+   * @return - the model from the given project file
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when a binary project file could not be read
+   */
+  public CollageModel readProject(String filename, boolean lazy)
+          throws FileNotFoundException, IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
+    try {
+      if (ProjectFile.isProjectFile(filename)) {
+        return ProjectFile.read(filename,
+                new CollagePPM(this.parallelism, this.cache.getBudget(), this.tileBudget,
+                        this.images), lazy,
+                this.getPool());
+      }
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("File " + filename + " not found!");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Project file could not be read.");
+    }
+
     Scanner sc;
 
     //now set up the scanner to read from the string we just built
@@ -392,7 +988,8 @@ public class CollagePPM implements CollageModel {
       System.out.println("Invalid Collage File: plain txt file should start with C1");
     }
     // Gather Collage information
-    CollageModel model = new CollagePPM();
+    CollageModel model = new CollagePPM(this.parallelism, this.cache.getBudget(),
+            this.tileBudget, this.images);
     int width = sc.nextInt();
     int height = sc.nextInt();
     int maxValue = sc.nextInt();
@@ -433,32 +1030,90 @@ public class CollagePPM implements CollageModel {
   }
 
   /**
-   * Writes a PPM image file given an IListOfPixel object and the file path.
+   * Writes a PPM image file given an IListOfPixel object and the file path, in the plain (P3)
+   * or binary (P6) format. The channels of each row are encoded straight into the buffer of the
+   * writer.
    *
    * @param img      - the IListOfPixel object
    * @param filename - the saved location of the file
+   * @param binary   - whether the file is written in the binary format
+   * @param progress - the progress to count each written row in
+   * @throws IOException - when the file could not be written or the save was cancelled
    */
-  private static void writePPM(IListOfPixel img, String filename) {
-    try (FileWriter fw = new FileWriter(filename)) {
-      fw.write("P3\n");
-      fw.write(img.getWidth() + " " + img.getHeight() + "\n");
-      fw.write(img.getMax() + "\n");
-
+  private static void writePPM(IListOfPixel img, String filename, boolean binary,
+                               Progress progress) throws IOException {
+    try (PPMWriter out = new PPMWriter(filename)) {
+      int maxValue = writePPMHeader(out, binary, img.getHeight(), img.getWidth(), img.getMax());
+      int[] row = new int[img.getWidth()];
       for (int i = 0; i < img.getHeight(); i++) {
-        for (int j = 0; j < img.getWidth(); j++) {
-          fw.write(img.getPixel(new Posn(i, j)).toString() + " ");
-        }
-        fw.write("\n");
+        img.getRow(i, row);
+        writePPMRow(out, binary, row, 0, row.length, maxValue);
+        progress.advance(1);
       }
+    }
+  }
 
-      fw.close();
-    } catch (IOException e) {
-      System.out.println("PPM file could not be written.");
+  /**
+   * Writes the header of a PPM image file in the plain (P3) or binary (P6) format.
+   * The max value is kept within the two bytes a channel of a binary file can have, which is
+   * also the largest max value of a plain file.
+   *
+   * @param out      - the writer of the file
+   * @param binary   - whether the file is in the binary format
+   * @param height   - the number of rows of the image
+   * @param width    - the number of columns of the image
+   * @param maxValue - the max value of the image
+   * @return - the max value written to the file
+   * @throws IOException - when the file could not be written
+   */
+  static int writePPMHeader(PPMWriter out, boolean binary, int height, int width, int maxValue)
+          throws IOException {
+    int max = Math.max(1, Math.min(maxValue, 65535));
+    out.write(binary ? "P6\n" : "P3\n");
+    out.writeInt(width).writeByte(' ').writeInt(height).writeByte('\n');
+    out.writeInt(max).writeByte('\n');
+    return max;
+  }
+
+  /**
+   * Writes one row of packed colors to a PPM image file. Channels are scaled up from 255 when
+   * the max value of the file is over 255, and a binary channel is then two bytes instead of
+   * one.
+   *
+   * @param out      - the writer of the file
+   * @param binary   - whether the file is in the binary format
+   * @param row      - the colors to write
+   * @param offset   - the index of the first color of the row
+   * @param width    - the number of colors in the row
+   * @param maxValue - the max value written to the file
+   * @throws IOException - when the file could not be written
+   */
+  static void writePPMRow(PPMWriter out, boolean binary, int[] row, int offset, int width,
+                          int maxValue) throws IOException {
+    for (int i = offset; i < offset + width; i++) {
+      int argb = row[i];
+      if (!binary) {
+        out.writeInt(fileSample(Raster.red(argb), maxValue)).writeByte(' ');
+        out.writeInt(fileSample(Raster.green(argb), maxValue)).writeByte(' ');
+        out.writeInt(fileSample(Raster.blue(argb), maxValue)).writeByte(' ');
+      } else if (maxValue > 255) {
+        out.writeShort(fileSample(Raster.red(argb), maxValue));
+        out.writeShort(fileSample(Raster.green(argb), maxValue));
+        out.writeShort(fileSample(Raster.blue(argb), maxValue));
+      } else {
+        out.writeByte(Raster.red(argb));
+        out.writeByte(Raster.green(argb));
+        out.writeByte(Raster.blue(argb));
+      }
+    }
+    if (!binary) {
+      out.writeByte('\n');
     }
   }
 
   /**
    * Writes an image file given an IListOfPixel object and the file path.
+   * A PPM file is written in the plain (P3) format.
    *
    * @param img - the compressed image object
    * @param filename - the saved location of the file
@@ -469,83 +1124,366 @@ public class CollagePPM implements CollageModel {
    */
   public boolean writeImage(IListOfPixel img, String filename)
           throws IOException, IllegalArgumentException {
+    return this.writeImage(img, filename, false);
+  }
+
+  /**
+   * Writes an image file given an IListOfPixel object and the file path.
+   *
+   * @param img      - the compressed image object
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @return - returns if the image is saved properly
+   * @throws IOException - Error in writing to an image file
+   * @throws IllegalArgumentException - When the input is null or
+   *                                    when the file extension is not supported
+   */
+  public boolean writeImage(IListOfPixel img, String filename, boolean binary)
+          throws IOException, IllegalArgumentException {
     if (Objects.isNull(img) || Objects.isNull(filename)) {
       throw new IllegalArgumentException("Given input is null! Try again!");
     }
-    // check if extension is ppm
+    return this.writeImage(img, filename, binary, Progress.NONE);
+  }
+
+  /*
+   * Helper method that writes an image file in the format of its extension and counts the
+   * written rows in the given progress.
+   */
+  private boolean writeImage(IListOfPixel img, String filename, boolean binary,
+                             Progress progress) throws IOException, IllegalArgumentException {
+    String format = imageFormat(filename);
+    try {
+      if (format.equals("ppm")) {
+        writePPM(img, filename, binary, progress);
+        return true;
+      }
+      return writeImageIO(this.createImageObject(img), format, new File(filename), progress);
+    } catch (InterruptedIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new IOException("Error in writing " + format + " image file.");
+    }
+  }
+
+  /*
+   * Helper method that returns the format of an image file from its extension.
+   */
+  private static String imageFormat(String filename) throws IllegalArgumentException {
     if (filename.contains(".ppm")) {
-      writePPM(img, filename);
+      return "ppm";
+    } else if (filename.contains(".jpg") || filename.contains(".jpeg")) {
+      return "jpg";
+    } else if (filename.contains(".png")) {
+      return "png";
+    }
+    throw new IllegalArgumentException("File extension is not supported.");
+  }
+
+  /*
+   * Helper method that encodes an image with an ImageIO writer of the given format, the same
+   * way ImageIO.write does, while following its progress. Returns false when there is no
+   * writer for the image.
+   */
+  private static boolean writeImageIO(RenderedImage image, String format, File file,
+                                      Progress progress) throws IOException {
+    Iterator<ImageWriter> writers = ImageIO.getImageWriters(
+            ImageTypeSpecifier.createFromRenderedImage(image), format);
+    if (!writers.hasNext()) {
+      return false;
+    }
+    ImageWriter writer = writers.next();
+    try {
+      file.delete();
+      try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+        if (Objects.isNull(out)) {
+          throw new IOException("Image file " + file + " could not be created.");
+        }
+        writer.setOutput(out);
+        writer.addIIOWriteProgressListener(progress);
+        writer.write(image);
+      }
+    } finally {
+      writer.dispose();
+    }
+    // the writer stops early once the save is cancelled
+    progress.advance(0);
+    return true;
+  }
+
+  /**
+   * Writes an image file given an IListOfPixel object and the file path on a background
+   * thread. Saves run one after another in the order they are started.
+   * The image must not change while it is written, such as the new layer saveImage returns.
+   * A file that is only partly written because the save failed or was cancelled is deleted.
+   *
+   * @param img      - the image to write, such as the layer returned by saveImage
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null OR
+   *                                  when the file extension is not supported
+   */
+  public Future<?> writeImageAsync(IListOfPixel img, String filename, boolean binary,
+                                   SaveListener listener) throws IllegalArgumentException {
+    if (Objects.isNull(img) || Objects.isNull(filename) || Objects.isNull(listener)) {
+      throw new IllegalArgumentException("Given input is null! Try again!");
+    }
+    imageFormat(filename);
+
+    Progress progress = new Progress(filename, listener, img.getHeight());
+    return this.submitImage(filename, listener,
+            () -> this.writeImage(img, filename, binary, progress));
+  }
+
+  /**
+   * Exports the collage to an image file without compositing the whole canvas at once.
+   * PPM and PNG files are composited a band of rows at a time, on the pool of this model, while
+   * the bands above are encoded on another thread, so only a few bands are held in memory and
+   * the composite cache is not used. Other formats are written from the image returned by
+   * saveImage, since their encoders take the whole image.
+   *
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @return - returns if the image is saved properly
+   * @throws IOException - Error in writing to an image file
+   * @throws IllegalArgumentException - When the input is null or
+   *                                    when the file extension is not supported
+   */
+  public boolean exportImage(String filename, boolean binary)
+          throws IOException, IllegalArgumentException {
+    if (Objects.isNull(filename)) {
+      throw new IllegalArgumentException("Given input is null! Try again!");
+    }
+    return this.exportImage(filename, binary, this.getPool(), Progress.NONE);
+  }
+
+  /*
+   * Helper method that exports the collage to an image file, compositing on the given pool and
+   * counting the written rows in the given progress.
+   */
+  private boolean exportImage(String filename, boolean binary, ForkJoinPool pool,
+                              Progress progress) throws IOException, IllegalArgumentException {
+    String format = imageFormat(filename);
+    if (!ExportPipeline.supports(format)) {
+      return this.writeImage(this.saveImage(), filename, binary, progress);
+    }
+    try {
+      new ExportPipeline(this.layers, this.height, this.width, this.maxValue, pool)
+              .write(filename, format, binary, progress);
       return true;
+    } catch (InterruptedIOException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new IOException("Error in writing " + format + " image file.");
     }
-    RenderedImage image = createImageObject(img);
-    if (filename.contains(".jpg") || filename.contains(".jpeg")) {
+  }
+
+  /**
+   * Exports the collage to an image file like exportImage on a background thread.
+   * The layers are copied before this returns, so the model can be changed while the file is
+   * written. Saves run one after another in the order they are started.
+   * A file that is only partly written because the save failed or was cancelled is deleted.
+   *
+   * @param filename - the saved location of the file
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format, which is ignored for other formats
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null OR
+   *                                  when the file extension is not supported
+   */
+  public Future<?> exportImageAsync(String filename, boolean binary, SaveListener listener)
+          throws IllegalArgumentException {
+    if (Objects.isNull(filename) || Objects.isNull(listener)) {
+      throw new IllegalArgumentException("Given input is null! Try again!");
+    }
+    imageFormat(filename);
+
+    // the copy composites its bands on the pool of this model
+    CollagePPM snapshot = this.snapshot(this);
+    ForkJoinPool pool = this.getPool();
+    Progress progress = new Progress(filename, listener, this.height);
+    return this.submitImage(filename, listener,
+            () -> snapshot.exportImage(filename, binary, pool, progress));
+  }
+
+  /*
+   * Helper method that starts writing an image file in the background and deletes the file
+   * when it is only partly written.
+   */
+  private Future<?> submitImage(String filename, SaveListener listener, Callable<Boolean> write) {
+    return this.submit(new SaveTask(filename, listener, () -> {
+      boolean written;
       try {
-        return ImageIO.write(image, "jpg", new File(filename));
-      } catch (IOException e) {
-        throw new IOException("Error in writing jpg image file.");
+        written = write.call();
+        if (Thread.currentThread().isInterrupted()) {
+          // the save was cancelled just as the file was finished
+          throw new InterruptedIOException("Saving " + filename + " was cancelled.");
+        }
+      } catch (Exception e) {
+        Files.deleteIfExists(Paths.get(filename));
+        throw e;
       }
-    } else if (filename.contains(".png")) {
-      try {
-        return ImageIO.write(image, "png", new File(filename));
-      } catch (IOException e) {
-        throw new IOException("Error in writing png image file.");
+      if (!written) {
+        throw new IOException("Image file " + filename + " could not be written.");
       }
-    } else {
-      throw new IllegalArgumentException("File extension is not supported.");
-    }
+      return null;
+    }));
   }
 
   /**
    * Creates a rendered image object from the given IListOfPixel object.
+   * The colors are copied into the array behind the image a row at a time. Only the layer
+   * returned by saveImage, whose composite nothing else uses, shares its array with the image
+   * instead, so changes to either show in both.
    *
    * @param img - the IListOfPixel object
    * @return - the rendered image
    */
   public BufferedImage createImageObject(IListOfPixel img) {
-    BufferedImage image = new BufferedImage(img.getWidth(),
-            img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-    // Iterating through the image array
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        IPixel p = img.getPixel(new Posn(i,j));
-        int[] rgba = p.getValues();
-        Color c = new Color(rgba[0], rgba[1], rgba[2], rgba[3]);
-        image.setRGB(j, i, c.getRGB());
-      }
+    if (img instanceof Layer && ((Layer) img).isRendered()) {
+      return ImageUtil.toBufferedImage((Raster) ((Layer) img).getRaster());
     }
-
-    return image;
+    return ImageUtil.toBufferedImage(img);
   }
 
   /**
    * Writes a project file given a model and the file path.
+   * The project is written in the binary (C2) format, with a table of contents of the layers
+   * followed by the colors of each layer.
    *
    * @param model    - the given model
    * @param filename - the saved location of the file
    */
   public void writeProject(CollageModel model, String filename) {
-    try (FileWriter fw = new FileWriter(filename)) {
-      // Write collage information
-      fw.write("C1\n");
-      fw.write(model.getWidth() + " " + model.getHeight() + "\n");
-      fw.write(model.getMax() + "\n");
-
-      // write layers and layer information
-      for (ILayer l : model.renderLayers()) {
-        fw.write(l.getName() + " " + l.getFilter().getOption() + "\n");
+    this.writeProject(model, filename, false);
+  }
+
+  /**
+   * Writes a project file given a model and the file path.
+   * The project is written in the binary (C2) format, with a table of contents of the layers
+   * followed by the stored colors of each layer, so no filter is rendered to save a project.
+   * A layer read from a project file that has not been used since is copied from the payload
+   * it was mapped from without being decoded. The preview is the composite of saveImage, which
+   * is cached for the layers that have not changed since the last save.
+   *
+   * @param model    - the given model
+   * @param filename - the saved location of the file
+   * @param preview  - whether the flattened collage is embedded in the file as a preview
+   */
+  public void writeProject(CollageModel model, String filename, boolean preview) {
+    try {
+      ProjectFile.write(model, filename, preview, Progress.NONE);
+    } catch (IOException e) {
+      System.out.println("Project file could not be written.");
+    }
+  }
+
+  /**
+   * Writes a project file given a model and the file path on a background thread.
+   * The layers of the model are copied before this returns, so the model can be changed while
+   * the file is written. Saves run one after another in the order they are started. The file
+   * is written to a temporary file that is only moved over the given file once it is complete,
+   * so a failed or cancelled save leaves the given file as it was.
+   *
+   * @param model    - the given model
+   * @param filename - the saved location of the file
+   * @param preview  - whether the flattened collage is embedded in the file as a preview
+   * @param listener - the listener told about the progress and the end of the save
+   * @return - the save, which can be cancelled
+   * @throws IllegalArgumentException - when the input is null
+   */
+  public Future<?> writeProjectAsync(CollageModel model, String filename, boolean preview,
+                                     SaveListener listener) throws IllegalArgumentException {
+    if (Objects.isNull(model) || Objects.isNull(filename) || Objects.isNull(listener)) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
+    CollageModel snapshot = this.snapshot(model);
+    long rows = (long) model.getHeight() * (model.getLayers().size() + (preview ? 1 : 0));
+    Progress progress = new Progress(filename, listener, rows);
+    return this.submit(new SaveTask(filename, listener, () -> {
+      ProjectFile.write(snapshot, filename, preview, progress);
+      return null;
+    }));
+  }
+
+  /*
+   * Helper method that copies the layers of the given model into a new model that no other
+   * thread changes. The copies share the tiles of the layers until either of them changes a
+   * tile, and layers mapped from a project file that have not been decoded share the mapping,
+   * so taking a snapshot does not copy the colors of the layers.
+   */
+  private CollagePPM snapshot(CollageModel model) {
+    // the snapshot is only composited once for a preview, so it does not cache composites, and
+    // it is not started, so it creates no background layer or tile store of its own
+    CollagePPM snapshot = new CollagePPM(1, 0, this.tileBudget, this.images);
+    snapshot.height = model.getHeight();
+    snapshot.width = model.getWidth();
+    snapshot.maxValue = model.getMax();
+    for (ILayer l : model.getLayers()) {
+      if (l instanceof Layer) {
+        snapshot.layers.add(((Layer) l).copy());
+      } else {
+        Raster raster = new Raster(l.getHeight(), l.getWidth());
+        int[] row = new int[l.getWidth()];
         for (int i = 0; i < l.getHeight(); i++) {
-          for (int j = 0; j < l.getWidth(); j++) {
-            fw.write(l.getPixel(new Posn(i, j)).rgbaString() + " ");
-          }
-          fw.write("\n");
+          l.getRow(i, row);
+          raster.setRow(i, row);
         }
+        ILayer copy = new Layer(l.getName(), raster, l.getMax());
+        copy.setFilter(l.getFilter());
+        snapshot.layers.add(copy);
       }
+    }
+    return snapshot;
+  }
 
-      // close the stream
-      fw.close();
+  /*
+   * Helper method that starts the given save on the thread that saves the files of this model.
+   */
+  private Future<?> submit(SaveTask save) {
+    if (Objects.isNull(this.saver)) {
+      // the thread only lives while there are files to save, and never keeps the program open
+      ThreadPoolExecutor saver = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+              new LinkedBlockingQueue<Runnable>(), (r) -> {
+                Thread thread = new Thread(r, "collage-save");
+                thread.setDaemon(true);
+                return thread;
+              });
+      saver.allowCoreThreadTimeOut(true);
+      this.saver = saver;
+    }
+    this.saver.execute(save);
+    return save;
+  }
+
+  /**
+   * Reads the flattened preview embedded in a binary (C2) project file, without reading the
+   * layers of the project.
+   *
+   * @param filename - the location of the file
+   * @return - the flattened collage, or null if the file has no preview
+   * @throws FileNotFoundException    - could not find the file given the file path
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when the file is not a binary project file
+   */
+  public IListOfPixel readProjectPreview(String filename)
+          throws FileNotFoundException, IllegalArgumentException {
+    if (filename == null) {
+      throw new IllegalArgumentException("Cannot have null argument.");
+    }
+    try {
+      return ProjectFile.readPreview(filename);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("File " + filename + " not found!");
     } catch (IOException e) {
-      System.out.println("Project file could not be written.");
+      throw new IllegalArgumentException("Project file could not be read.");
     }
   }
+
 }
@@ -0,0 +1,309 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A class that caches the state of a stack of layers below each layer index.
+ * The level at index i keeps the composite of layers 0 to i and the filtered layer i, so an edit
+ * to layer k only has to composite the layers from k up, starting from level k - 1.
+ * Every level remembers the layers and versions it was composited from. The levels are
+ * evicted in least recently used order once they use more memory than the budget.
+ */
+final class CompositeCache {
+  private final long budget;
+  private final LinkedHashMap<Integer, Level> levels;
+  private long size;
+
+  /**
+   * Creates an empty cache that holds at most the given number of bytes of levels.
+   * The most recently used level is always kept, even when it is larger than the budget.
+   *
+   * @param budget - the number of bytes the levels may use
+   * @throws IllegalArgumentException - when the budget is negative
+   */
+  CompositeCache(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Invalid cache budget!");
+    }
+    this.budget = budget;
+    this.levels = new LinkedHashMap<Integer, Level>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the level at the given index and marks it as recently used.
+   *
+   * @param index - the index of the top layer of the level
+   * @return - the level, or null if it is not cached
+   */
+  Level get(int index) {
+    return this.levels.get(index);
+  }
+
+  /**
+   * Returns the number of bytes one level of the given size uses.
+   *
+   * @param height - the height of the level
+   * @param width  - the width of the level
+   * @return - the size of the level
+   */
+  static long levelSize(int height, int width) {
+    // one composite and one filtered layer of 4 byte colors
+    return 2L * Integer.BYTES * height * width;
+  }
+
+  /**
+   * Returns the number of bytes the levels may use.
+   *
+   * @return - the budget of this cache
+   */
+  long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the number of bytes that can still be cached without evicting a level.
+   *
+   * @return - the unused part of the budget
+   */
+  long getFree() {
+    return Math.max(0, this.budget - this.size);
+  }
+
+  /**
+   * Returns the number of bytes the cached levels use.
+   *
+   * @return - the size of the cached levels
+   */
+  long getSize() {
+    return this.size;
+  }
+
+  /**
+   * Caches the given level and evicts the least recently used levels until the cache fits in
+   * its budget.
+   *
+   * @param level - the level to cache
+   */
+  void put(Level level) {
+    Level old = this.levels.put(level.getIndex(), level);
+    if (Objects.nonNull(old)) {
+      this.size -= old.size();
+    }
+    this.size += level.size();
+
+    // evict from the least recently used level but keep the newest one
+    Iterator<Level> iter = this.levels.values().iterator();
+    while (this.size > this.budget && this.levels.size() > 1) {
+      this.size -= iter.next().size();
+      iter.remove();
+    }
+  }
+
+  /**
+   * Removes every level that was not composited from the bottom layers of the given stack,
+   * such as the levels above a removed layer.
+   *
+   * @param layers - the current layers, ordered from the bottom-most layer
+   */
+  void retain(List<ILayer> layers) {
+    for (Iterator<Map.Entry<Integer, Level>> iter = this.levels.entrySet().iterator();
+         iter.hasNext(); ) {
+      Map.Entry<Integer, Level> entry = iter.next();
+      if (!entry.getValue().isOver(layers)) {
+        this.size -= entry.getValue().size();
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the highest cached level below the given index whose layers have not changed
+   * since it was composited and that is composited everywhere in the given region.
+   *
+   * @param layers - the current layers, ordered from the bottom-most layer
+   * @param below  - the index the level must be below
+   * @param region - the region the level is needed in
+   * @return - the index of the level, or -1 if no such level is cached
+   */
+  int currentBelow(List<ILayer> layers, int below, Rectangle region) {
+    int found = -1;
+    for (Map.Entry<Integer, Level> entry : this.levels.entrySet()) {
+      int index = entry.getKey();
+      if (index < below && index > found && entry.getValue().isCurrent(layers, region)) {
+        found = index;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Updates the cached levels from the given index up once they have been composited in the
+   * given region, except for the parts that were skipped.
+   *
+   * @param start  - the index of the lowest level that was composited
+   * @param region - the region that was composited
+   * @param culled - the region of each level that was skipped, or null where none was
+   */
+  void composited(int start, Rectangle region, Rectangle[] culled) {
+    for (Level level : this.levels.values()) {
+      if (level.getIndex() >= start) {
+        level.composited(region, culled[level.getIndex()]);
+      }
+    }
+  }
+
+  /**
+   * Returns the cached levels by index without changing their order of use.
+   *
+   * @return - an unmodifiable view of the cached levels
+   */
+  Map<Integer, Level> getLevels() {
+    return Collections.unmodifiableMap(this.levels);
+  }
+
+  /**
+   * Removes every level from this cache.
+   */
+  void clear() {
+    this.levels.clear();
+    this.size = 0;
+  }
+
+  /**
+   * A class that represents the state of the stack of layers up to and including one layer.
+   */
+  static final class Level {
+    private final Raster composite;
+    private final Raster filtered;
+    private final ILayer[] layers;
+    private final long[] versions;
+    private Rectangle stale;
+
+    /**
+     * Creates an empty level for the layers from the bottom-most layer up to the given index.
+     *
+     * @param layers - the layers, ordered from the bottom-most layer
+     * @param index  - the index of the top layer of the level
+     * @param height - the height of the layers
+     * @param width  - the width of the layers
+     */
+    Level(List<ILayer> layers, int index, int height, int width) {
+      this.composite = new Raster(height, width);
+      this.filtered = new Raster(height, width);
+      this.layers = layers.subList(0, index + 1).toArray(new ILayer[0]);
+      this.versions = new long[index + 1];
+      this.record();
+    }
+
+    /**
+     * Returns the index of the top layer of this level.
+     *
+     * @return - the index of this level
+     */
+    int getIndex() {
+      return this.layers.length - 1;
+    }
+
+    /**
+     * Returns the composite of the layers of this level.
+     *
+     * @return - the composite raster
+     */
+    Raster getComposite() {
+      return this.composite;
+    }
+
+    /**
+     * Returns the filtered top layer of this level.
+     *
+     * @return - the filtered raster
+     */
+    Raster getFiltered() {
+      return this.filtered;
+    }
+
+    /**
+     * Remembers the current versions of the layers of this level, once it has been composited
+     * from them.
+     */
+    void record() {
+      for (int i = 0; i < this.layers.length; i++) {
+        this.versions[i] = this.layers[i].getVersion();
+      }
+    }
+
+    /**
+     * Returns whether the bottom layers of the given stack are the layers of this level.
+     *
+     * @param layers - the layers, ordered from the bottom-most layer
+     * @return - true if this level was composited from the same layers
+     */
+    boolean isOver(List<ILayer> layers) {
+      if (layers.size() < this.layers.length) {
+        return false;
+      }
+      for (int i = 0; i < this.layers.length; i++) {
+        if (layers.get(i) != this.layers[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Marks the given region of this level as composited, except for the part that was skipped
+     * because an opaque layer above this level covers it.
+     *
+     * @param region - the region that was composited
+     * @param culled - the part of the region that was skipped, or null if none was
+     */
+    void composited(Rectangle region, Rectangle culled) {
+      if (Objects.nonNull(this.stale) && region.contains(this.stale)) {
+        this.stale = null;
+      }
+      if (Objects.nonNull(culled)) {
+        if (Objects.isNull(this.stale)) {
+          this.stale = new Rectangle(culled);
+        } else {
+          this.stale.add(culled);
+        }
+      }
+    }
+
+    /**
+     * Returns whether the layers of this level have not changed since it was composited and
+     * this level was composited everywhere in the given region.
+     *
+     * @param layers - the layers, ordered from the bottom-most layer
+     * @param region - the region this level is needed in
+     * @return - true if this level is up to date in the region
+     */
+    boolean isCurrent(List<ILayer> layers, Rectangle region) {
+      if (!this.isOver(layers)
+              || (Objects.nonNull(this.stale) && this.stale.intersects(region))) {
+        return false;
+      }
+      for (int i = 0; i < this.layers.length; i++) {
+        if (this.layers[i].getVersion() != this.versions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns the number of bytes this level uses.
+     *
+     * @return - the size of this level
+     */
+    long size() {
+      return levelSize(this.composite.getHeight(), this.composite.getWidth());
+    }
+  }
+}
@@ -0,0 +1,389 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.PixelArrayUtil;
+
+/**
+ * A class that composites a stack of layers into one raster in a single pass.
+ * Each output row is produced by filtering every layer against the filtered layer below it
+ * and blending it over the running composite, so only a few rows are held at a time
+ * instead of one filtered copy of every layer.
+ * Every step only reads the same position of each layer, so any region of the canvas can be
+ * composited on its own.
+ * The layers of each span of a row are searched from the top for an opaque layer that does not
+ * read the layer below it, and the layers under it are skipped since they cannot show through.
+ * Layers that are transparent in a span, such as the parts of a tiled layer that were never
+ * drawn on, are skipped unless the layer above reads them.
+ */
+final class Compositor {
+  // the number of rows a band is split down to before it is composited
+  private static final int BAND_ROWS = 32;
+  // the number of columns of a row that are checked for an opaque layer together
+  private static final int CULL_COLUMNS = 64;
+
+  private final List<ILayer> layers;
+  private final int height;
+  private final int width;
+
+  /**
+   * Creates a compositor for the given layers, ordered from the bottom-most layer.
+   *
+   * @param layers - the layers to composite
+   * @param height - the height of every layer
+   * @param width  - the width of every layer
+   * @throws IllegalArgumentException - when the given layers are null
+   * @throws IllegalStateException    - when there are no layers to composite
+   */
+  Compositor(List<ILayer> layers, int height, int width)
+          throws IllegalArgumentException, IllegalStateException {
+    if (Objects.isNull(layers)) {
+      throw new IllegalArgumentException("Invalid Compositor input!");
+    }
+    if (layers.isEmpty()) {
+      throw new IllegalStateException("There are no layers to composite!");
+    }
+    this.layers = layers;
+    this.height = height;
+    this.width = width;
+  }
+
+  /**
+   * Composites every row of the layers into a new raster on the calling thread.
+   *
+   * @return - the composited raster
+   */
+  Raster composite() {
+    return this.composite(null);
+  }
+
+  /**
+   * Composites every row of the layers into a new raster.
+   * The canvas is split into bands of rows that are composited on the given pool.
+   * Every row is computed the same way on either path, so the output does not depend on
+   * the pool.
+   *
+   * @param pool - the pool to composite the bands on, or null to composite serially
+   * @return - the composited raster
+   */
+  Raster composite(ForkJoinPool pool) {
+    Raster out = new Raster(this.height, this.width);
+    this.composite(out, new Rectangle(0, 0, this.width, this.height), pool);
+    return out;
+  }
+
+  /**
+   * Composites the given region of the layers into the same region of the given raster.
+   * The rest of the raster is left unchanged.
+   *
+   * @param out    - the raster to write the composite to
+   * @param region - the region to composite where x is the column and y is the row
+   * @param pool   - the pool to composite the bands on, or null to composite serially
+   */
+  void composite(Raster out, Rectangle region, ForkJoinPool pool) {
+    Raster[] composites = new Raster[this.layers.size()];
+    composites[composites.length - 1] = out;
+    this.composite(composites, new Raster[this.layers.size()], 0, region, pool);
+  }
+
+  /**
+   * Composites the given region of the layers from the given layer up, starting from the kept
+   * state of the layers below it.
+   * The state after layer i is the composite of layers 0 to i and the filtered layer i, which is
+   * what the layer above it is filtered against. The state is written to the given rasters for
+   * every layer where they are not null, and layers above the last kept state are skipped.
+   * The state of the layers under an opaque layer is not composited, and the parts of the
+   * region where a kept state was skipped are returned.
+   *
+   * @param composites - the composite after each layer, or null where it is not kept
+   * @param filtered   - the filtered layer at each index, or null where it is not kept
+   * @param start      - the first layer to composite
+   * @param region     - the region to composite where x is the column and y is the row
+   * @param pool       - the pool to composite the bands on, or null to composite serially
+   * @return - the region of each kept state that was not written, or null where it was written
+   * @throws IllegalArgumentException - when the arrays do not have one entry per layer OR
+   *                                  when the state below the first layer is not kept
+   */
+  Rectangle[] composite(Raster[] composites, Raster[] filtered, int start, Rectangle region,
+                        ForkJoinPool pool) throws IllegalArgumentException {
+    return this.composite(composites, filtered, start, region, 0, pool);
+  }
+
+  /**
+   * Composites the given region of a band of rows of the layers into the given raster, whose
+   * first row holds the first row of the region, so a band of the canvas is composited without
+   * a raster the size of the canvas. The rest of the raster is left unchanged.
+   *
+   * @param out    - the raster to write the band to, at least as wide as the layers
+   * @param region - the region to composite where x is the column and y is the row
+   * @param pool   - the pool to composite the rows of the region on, or null to composite
+   *               serially
+   * @throws IllegalArgumentException - when the region does not fit in the raster
+   */
+  void compositeBand(Raster out, Rectangle region, ForkJoinPool pool)
+          throws IllegalArgumentException {
+    if (Objects.isNull(out) || Objects.isNull(region) || region.height < 0
+            || region.height > out.getHeight() || out.getWidth() < this.width) {
+      throw new IllegalArgumentException("Invalid Compositor input!");
+    }
+    Raster[] composites = new Raster[this.layers.size()];
+    composites[composites.length - 1] = out;
+    this.composite(composites, new Raster[this.layers.size()], 0, region, region.y, pool);
+  }
+
+  /*
+   * Helper method that composites the given region of the layers from the given layer up into
+   * kept states whose first row holds the given row of the canvas.
+   */
+  private Rectangle[] composite(Raster[] composites, Raster[] filtered, int start,
+                                Rectangle region, int origin, ForkJoinPool pool)
+          throws IllegalArgumentException {
+    int count = this.layers.size();
+    if (composites.length != count || filtered.length != count || start < 0 || start > count
+            || (start > 0 && (Objects.isNull(composites[start - 1])
+            || Objects.isNull(filtered[start - 1])))) {
+      throw new IllegalArgumentException("Invalid Compositor input!");
+    }
+
+    // only composite up to the last layer whose state is kept
+    int end = start;
+    for (int i = start; i < count; i++) {
+      if (Objects.nonNull(composites[i]) || Objects.nonNull(filtered[i])) {
+        end = i + 1;
+      }
+    }
+    Rectangle[] culled = new Rectangle[count];
+    Rectangle clipped = region.intersection(new Rectangle(0, 0, this.width, this.height));
+    if (end == start || clipped.isEmpty()) {
+      return culled;
+    }
+    BandTask task = new BandTask(composites, filtered, culled, start, end,
+            clipped.y, clipped.y + clipped.height, clipped.x, clipped.width, origin);
+    if (Objects.isNull(pool) || clipped.height <= BAND_ROWS) {
+      task.compositeRows();
+    } else {
+      pool.invoke(task);
+    }
+    return culled;
+  }
+
+  /**
+   * A task that composites a band of rows, splitting it in half while it is large.
+   */
+  @SuppressWarnings("serial")
+  private final class BandTask extends RecursiveAction {
+    private final Raster[] composites;
+    private final Raster[] filtered;
+    private final Rectangle[] culled;
+    private final int start;
+    private final int end;
+    private final int fromRow;
+    private final int toRow;
+    private final int col;
+    private final int length;
+    private final int origin;
+
+    // the rows used while compositing, created by the task that composites the band
+    private int[] layerRow;
+    private int[] currFiltered;
+    private int[] prevFiltered;
+    private int[] composite;
+
+    /**
+     * Creates a task that composites the given range of layers, rows and columns.
+     *
+     * @param composites - the composite after each layer, or null where it is not kept
+     * @param filtered   - the filtered layer at each index, or null where it is not kept
+     * @param culled     - the region of each kept state that was not written
+     * @param start      - the first layer to composite
+     * @param end        - the last layer to composite (exclusive)
+     * @param fromRow    - the first row to composite (inclusive)
+     * @param toRow      - the last row to composite (exclusive)
+     * @param col        - the first column to composite
+     * @param length     - the number of columns to composite
+     * @param origin     - the row of the canvas held in the first row of the kept states
+     */
+    BandTask(Raster[] composites, Raster[] filtered, Rectangle[] culled, int start, int end,
+             int fromRow, int toRow, int col, int length, int origin) {
+      this.composites = composites;
+      this.filtered = filtered;
+      this.culled = culled;
+      this.start = start;
+      this.end = end;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+      this.col = col;
+      this.length = length;
+      this.origin = origin;
+    }
+
+    /**
+     * Composites the band or splits it into two smaller bands.
+     */
+    @Override
+    protected void compute() {
+      if (this.toRow - this.fromRow <= BAND_ROWS) {
+        this.compositeRows();
+        return;
+      }
+      int middle = (this.fromRow + this.toRow) >>> 1;
+      invokeAll(this.split(this.fromRow, middle), this.split(middle, this.toRow));
+    }
+
+    /*
+     * Helper method that creates a task for part of the rows of this band.
+     */
+    private BandTask split(int from, int to) {
+      return new BandTask(this.composites, this.filtered, this.culled, this.start, this.end,
+              from, to, this.col, this.length, this.origin);
+    }
+
+    /**
+     * Composites the rows and columns of this band on the calling thread.
+     * Neighbouring spans that have the same lowest visible layer are composited together.
+     */
+    void compositeRows() {
+      this.layerRow = new int[width];
+      this.currFiltered = new int[width];
+      this.prevFiltered = new int[width];
+      this.composite = new int[width];
+      Rectangle[] skipped = new Rectangle[layers.size()];
+      int last = this.col + this.length;
+
+      for (int row = this.fromRow; row < this.toRow; row++) {
+        int from = this.col;
+        int floor = this.floor(row, from, last);
+        while (from < last) {
+          int to = this.spanEnd(from, last);
+          int next = floor;
+          while (to < last) {
+            next = this.floor(row, to, last);
+            if (next != floor) {
+              break;
+            }
+            to = this.spanEnd(to, last);
+          }
+          this.compositeSpan(row, from, to - from, floor, skipped);
+          from = to;
+          floor = next;
+        }
+      }
+
+      // report the skipped states once for the whole band
+      synchronized (this.culled) {
+        for (int i = 0; i < skipped.length; i++) {
+          if (Objects.nonNull(skipped[i])) {
+            if (Objects.isNull(this.culled[i])) {
+              this.culled[i] = skipped[i];
+            } else {
+              this.culled[i].add(skipped[i]);
+            }
+          }
+        }
+      }
+    }
+
+    /*
+     * Helper method that returns the end of the span of columns that starts at the given column.
+     */
+    private int spanEnd(int from, int last) {
+      return Math.min(last, (from / CULL_COLUMNS + 1) * CULL_COLUMNS);
+    }
+
+    /*
+     * Helper method that searches the layers from the top for the lowest layer that shows
+     * through in the span of columns that starts at the given column.
+     */
+    private int floor(int row, int from, int last) {
+      int span = this.spanEnd(from, last) - from;
+      for (int i = this.end - 1; i > this.start; i--) {
+        ILayer layer = layers.get(i);
+        if (!layer.getFilter().readsBelow() && layer.isOpaque(row, from, span)) {
+          return i;
+        }
+      }
+      return this.start;
+    }
+
+    /*
+     * Helper method that composites the layers from the given lowest visible layer up for part
+     * of a row.
+     */
+    private void compositeSpan(int row, int from, int span, int floor, Rectangle[] skipped) {
+      int i = floor;
+      if (floor > this.start || floor == 0) {
+        // nothing below the floor shows through, so it is filtered without a layer below
+        ILayer base = layers.get(floor);
+        base.getRow(row, from, span, this.layerRow);
+        base.getFilter().applyRow(this.layerRow, null, this.prevFiltered, from, span,
+                base.getMax());
+        System.arraycopy(this.prevFiltered, from, this.composite, from, span);
+        this.keep(floor, row, from, span);
+        i++;
+
+        // the kept states under the floor are not written here
+        for (int k = this.start; k < floor; k++) {
+          if (this.isKept(k)) {
+            if (Objects.isNull(skipped[k])) {
+              skipped[k] = new Rectangle(from, row, span, 1);
+            } else {
+              skipped[k].add(from, row);
+              skipped[k].add(from + span, row + 1);
+            }
+          }
+        }
+      } else {
+        // start from the kept state of the layers below
+        this.composites[i - 1].getRow(row - this.origin, from, span, this.composite);
+        this.filtered[i - 1].getRow(row - this.origin, from, span, this.prevFiltered);
+      }
+
+      // filter each layer against the filtered layer below and blend it in place
+      for (; i < this.end; i++) {
+        ILayer curr = layers.get(i);
+        int max = curr.getMax();
+        boolean transparent = curr.isTransparent(row, from, span);
+        if (transparent && !this.isKept(i)
+                && (i + 1 == this.end || !layers.get(i + 1).getFilter().readsBelow())) {
+          // every filter keeps the alpha, so the layer does not change the composite and
+          // nothing reads its filtered colors
+          continue;
+        }
+        curr.getRow(row, from, span, this.layerRow);
+        curr.getFilter().applyRow(this.layerRow, this.prevFiltered, this.currFiltered, from,
+                span, max);
+        if (!transparent) {
+          PixelArrayUtil.combineRow(this.currFiltered, from, this.composite, from, span, max);
+        }
+
+        int[] temp = this.prevFiltered;
+        this.prevFiltered = this.currFiltered;
+        this.currFiltered = temp;
+        this.keep(i, row, from, span);
+      }
+    }
+
+    /*
+     * Helper method that returns whether the state after the given layer is kept.
+     */
+    private boolean isKept(int layer) {
+      return Objects.nonNull(this.composites[layer]) || Objects.nonNull(this.filtered[layer]);
+    }
+
+    /*
+     * Helper method that writes the state after the given layer where it is kept.
+     */
+    private void keep(int layer, int row, int from, int span) {
+      if (Objects.nonNull(this.composites[layer])) {
+        this.composites[layer].setRow(row - this.origin, from, span, this.composite);
+      }
+      if (Objects.nonNull(this.filtered[layer])) {
+        this.filtered[layer].setRow(row - this.origin, from, span, this.prevFiltered);
+      }
+    }
+  }
+}
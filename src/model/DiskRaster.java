@@ -0,0 +1,253 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * A class that represents a grid of packed ARGB colors whose square tiles are kept in a tile
+ * store, which holds a bounded number of tiles in memory and the rest in a scratch file.
+ * Like a tiled raster, a tile is only created the first time a color in it is set to something
+ * other than the color of this raster, so a canvas larger than the memory of the program only
+ * uses the file for the tiles that were drawn on.
+ */
+final class DiskRaster implements IRaster {
+  private static final int TILE = TileStore.TILE;
+
+  private final TileStore store;
+  private final int height;
+  private final int width;
+  private final int color;
+  private final int tilesAcross;
+  private final int id;
+
+  /**
+   * Creates a raster with the given height and width in the given store where every color is
+   * the given color.
+   *
+   * @param store  - the store that keeps the tiles of this raster
+   * @param height - the height of the raster (rows)
+   * @param width  - the width of the raster (columns)
+   * @param color  - the packed color of every tile that has not been created
+   * @throws IllegalArgumentException - when the store is null OR
+   *                                  when the dimensions are less than or equal to zero
+   */
+  DiskRaster(TileStore store, int height, int width, int color)
+          throws IllegalArgumentException {
+    if (Objects.isNull(store)) {
+      throw new IllegalArgumentException("Invalid Raster input!");
+    }
+    if (height <= 0 || width <= 0
+            || (long) ((height + TILE - 1) / TILE) * ((width + TILE - 1) / TILE)
+            > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid Raster dimension!");
+    }
+    this.store = store;
+    this.height = height;
+    this.width = width;
+    this.color = color;
+    this.tilesAcross = (width + TILE - 1) / TILE;
+    this.id = store.register(this, ((height + TILE - 1) / TILE) * this.tilesAcross, color);
+  }
+
+  /*
+   * Helper constructor that creates a copy of the given raster in the same store.
+   */
+  private DiskRaster(DiskRaster source) {
+    this.store = source.store;
+    this.height = source.height;
+    this.width = source.width;
+    this.color = source.color;
+    this.tilesAcross = source.tilesAcross;
+    this.id = source.store.copy(this, source.id);
+  }
+
+  /**
+   * Returns the store that keeps the tiles of this raster.
+   *
+   * @return - the tile store
+   */
+  TileStore getStore() {
+    return this.store;
+  }
+
+  /**
+   * Returns the height of this raster.
+   *
+   * @return - the number of rows
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of this raster.
+   *
+   * @return - the number of columns
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the packed color at the given row and column, reading its tile from the scratch
+   * file when it is not in memory.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  @Override
+  public int get(int row, int col) throws IllegalArgumentException {
+    this.checkPosition(row, col);
+    return this.store.get(this.id, this.tileIndex(row, col), (row % TILE) * TILE + col % TILE);
+  }
+
+  /**
+   * Sets the packed color at the given row and column.
+   * Setting a color of a tile that has not been created to the color of this raster does not
+   * create the tile.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  @Override
+  public void set(int row, int col, int argb) throws IllegalArgumentException {
+    this.checkPosition(row, col);
+    int tile = this.tileIndex(row, col);
+    if (argb == this.color && !this.store.isCreated(this.id, tile)) {
+      return;
+    }
+    this.store.set(this.id, tile, (row % TILE) * TILE + col % TILE, argb);
+  }
+
+  /**
+   * Copies the given row of this raster into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    this.getRow(row, 0, this.width, dest);
+  }
+
+  /**
+   * Overwrites the given row of this raster with the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  @Override
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    this.setRow(row, 0, this.width, src);
+  }
+
+  /**
+   * Copies part of the given row of this raster into the same columns of the destination array.
+   * The columns of tiles that have not been created are filled with the color of this raster.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  @Override
+  public void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException {
+    this.checkSpan(row, col, length, dest);
+    int offset = (row % TILE) * TILE;
+    for (int from = col; from < col + length; ) {
+      int to = Math.min(col + length, (from / TILE + 1) * TILE);
+      this.store.getColors(this.id, this.tileIndex(row, from), offset + from % TILE, dest, from,
+              to - from);
+      from = to;
+    }
+  }
+
+  /**
+   * Overwrites part of the given row of this raster with the same columns of the source array.
+   * Tiles are only created for the columns that are not the color of this raster.
+   *
+   * @param row    - the row to overwrite
+   * @param col    - the first column to overwrite
+   * @param length - the number of columns to overwrite
+   * @param src    - the packed colors, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  @Override
+  public void setRow(int row, int col, int length, int[] src) throws IllegalArgumentException {
+    this.checkSpan(row, col, length, src);
+    int offset = (row % TILE) * TILE;
+    for (int from = col; from < col + length; ) {
+      int to = Math.min(col + length, (from / TILE + 1) * TILE);
+      int tile = this.tileIndex(row, from);
+      if (!this.isColor(src, from, to) || this.store.isCreated(this.id, tile)) {
+        this.store.setColors(this.id, tile, offset + from % TILE, src, from, to - from);
+      }
+      from = to;
+    }
+  }
+
+  /**
+   * Returns a deep copy of this raster in the same store. The copy shares the tiles that are in
+   * the scratch file with this raster until either of them changes a tile.
+   *
+   * @return - a raster with the same colors as this raster
+   */
+  @Override
+  public DiskRaster copy() {
+    return new DiskRaster(this);
+  }
+
+  /*
+   * Helper method that returns the index of the tile that holds the given position.
+   */
+  private int tileIndex(int row, int col) {
+    return (row / TILE) * this.tilesAcross + col / TILE;
+  }
+
+  /*
+   * Helper method that returns whether every color of the given columns is the color of
+   * this raster.
+   */
+  private boolean isColor(int[] src, int from, int to) {
+    for (int j = from; j < to; j++) {
+      if (src[j] != this.color) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Helper method that checks a position of this raster.
+   */
+  private void checkPosition(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+  }
+
+  /*
+   * Helper method that checks a span of a row and the array it is copied to or from.
+   */
+  private void checkSpan(int row, int col, int length, int[] buffer)
+          throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || length < 0 || col + length > this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+    if (Objects.isNull(buffer) || buffer.length < col + length) {
+      throw new IllegalArgumentException("Invalid row buffer!");
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package model;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import util.PNGWriter;
+import util.PPMWriter;
+
+/**
+ * A class that exports the composite of a stack of layers to a PPM or PNG image file without
+ * holding the whole composite in memory. The layers are composited a band of rows at a time and
+ * each band is handed through a bounded queue to an encoder running on its own thread, so
+ * compositing a band overlaps with compressing and writing the bands above it. Only a few bands
+ * exist, and each one is reused once it has been encoded.
+ * Layers whose tiles are kept on disk are composited in tile order: each band is one row of
+ * tiles, composited a block of tiles at a time, so every tile is read into memory once per
+ * export as long as the tile store holds a block of tiles of every layer.
+ */
+final class ExportPipeline {
+  // the number of colors a band of rows holds at most
+  private static final int BAND_PIXELS = 1 << 20;
+  // the number of bands that exist at once
+  private static final int BANDS = 3;
+  // the milliseconds the compositor waits for a band before checking the encoder has not failed
+  private static final long POLL_MILLIS = 50;
+  // the most tiles across a block of a band that is composited in tile order
+  private static final int BLOCK_TILES = 8;
+
+  private final Compositor compositor;
+  private final int height;
+  private final int width;
+  private final int maxValue;
+  private final ForkJoinPool pool;
+  private final int blockTiles;
+
+  /**
+   * Creates a pipeline that exports the given layers, ordered from the bottom-most layer.
+   *
+   * @param layers   - the layers to composite
+   * @param height   - the height of every layer
+   * @param width    - the width of every layer
+   * @param maxValue - the max value of the exported image
+   * @param pool     - the pool to composite each band on, or null to composite serially
+   * @throws IllegalArgumentException - when the given layers are null
+   * @throws IllegalStateException    - when there are no layers to composite
+   */
+  ExportPipeline(List<ILayer> layers, int height, int width, int maxValue, ForkJoinPool pool)
+          throws IllegalArgumentException, IllegalStateException {
+    this.compositor = new Compositor(layers, height, width);
+    this.height = height;
+    this.width = width;
+    this.maxValue = maxValue;
+    this.pool = pool;
+
+    // the blocks of a canvas on disk are kept small enough for the store to hold every layer
+    TileStore store = null;
+    for (ILayer layer : layers) {
+      if (layer instanceof Layer && ((Layer) layer).getRaster() instanceof DiskRaster) {
+        store = ((DiskRaster) ((Layer) layer).getRaster()).getStore();
+      }
+    }
+    this.blockTiles = Objects.isNull(store) ? 0
+            : Math.max(1, Math.min(BLOCK_TILES, store.getCapacity() / layers.size()));
+  }
+
+  /**
+   * Returns whether the given image format is encoded a band at a time.
+   *
+   * @param format - the format of the image file, such as "ppm"
+   * @return - whether the format can be exported by a pipeline
+   */
+  static boolean supports(String format) {
+    return format.equals("ppm") || format.equals("png");
+  }
+
+  /**
+   * Returns the number of rows in each band of an image of the given width.
+   *
+   * @param height - the number of rows of the image
+   * @param width  - the number of columns of the image
+   * @return - the number of rows in a band
+   */
+  static int bandRows(int height, int width) {
+    return Math.max(1, Math.min(height, BAND_PIXELS / Math.max(1, width)));
+  }
+
+  /**
+   * Composites the layers and writes them to the given file. The file is written until a band
+   * fails to be composited or encoded, or the calling thread is interrupted, and the encoder
+   * has stopped once this returns.
+   *
+   * @param filename - the path of the file to write
+   * @param format   - the format of the file, "ppm" or "png"
+   * @param binary   - whether a PPM file is written in the binary (P6) format instead of the
+   *                 plain (P3) format
+   * @param progress - the progress to count each encoded row in
+   * @throws IOException - when the file could not be written or the save was cancelled
+   */
+  void write(String filename, String format, boolean binary, Progress progress)
+          throws IOException {
+    int rows = this.blockTiles > 0 ? Math.min(this.height, TileStore.TILE)
+            : bandRows(this.height, this.width);
+    BlockingQueue<Raster> full = new ArrayBlockingQueue<Raster>(BANDS);
+    BlockingQueue<Raster> free = new ArrayBlockingQueue<Raster>(BANDS);
+    FutureTask<Void> encoder = new FutureTask<Void>(() -> {
+      this.encode(filename, format, binary, rows, full, free, progress);
+      return null;
+    });
+    Thread thread = new Thread(encoder, "collage-encode");
+    thread.setDaemon(true);
+    thread.start();
+
+    boolean finished = false;
+    try {
+      int created = 0;
+      for (int row = 0; row < this.height; row += rows) {
+        Raster band = free.poll();
+        if (Objects.isNull(band) && created < BANDS) {
+          band = new Raster(rows, this.width);
+          created++;
+        }
+        while (Objects.isNull(band)) {
+          if (encoder.isDone()) {
+            break;
+          }
+          band = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (Objects.isNull(band)) {
+          // the encoder stopped early, and getting its result reports why
+          break;
+        }
+        this.compositeBand(band, row, Math.min(rows, this.height - row));
+        // no more bands exist than the queue holds, so this never waits
+        full.put(band);
+      }
+      encoder.get();
+      finished = true;
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Saving " + filename + " was cancelled.");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      if (!finished) {
+        stop(encoder, thread);
+      }
+    }
+  }
+
+  /*
+   * Helper method that composites the given rows into a band, a block of tiles at a time when
+   * the layers are kept on disk.
+   */
+  private void compositeBand(Raster band, int row, int rows) {
+    if (this.blockTiles == 0) {
+      this.compositor.compositeBand(band, new Rectangle(0, row, this.width, rows), this.pool);
+      return;
+    }
+    int block = this.blockTiles * TileStore.TILE;
+    for (int col = 0; col < this.width; col += block) {
+      this.compositor.compositeBand(band,
+              new Rectangle(col, row, Math.min(block, this.width - col), rows), this.pool);
+    }
+  }
+
+  /*
+   * Helper method that takes each band from the queue in order, encodes its rows to the file
+   * and hands it back to be composited again.
+   */
+  private void encode(String filename, String format, boolean binary, int rows,
+                      BlockingQueue<Raster> full, BlockingQueue<Raster> free, Progress progress)
+          throws IOException, InterruptedException {
+    if (format.equals("png")) {
+      try (PNGWriter out = new PNGWriter(filename, this.height, this.width)) {
+        for (int row = 0; row < this.height; row += rows) {
+          int count = Math.min(rows, this.height - row);
+          Raster band = full.take();
+          out.writeRows(band.getData(), 0, count);
+          free.put(band);
+          progress.advance(count);
+        }
+      }
+      return;
+    }
+
+    try (PPMWriter out = new PPMWriter(filename)) {
+      int max = CollagePPM.writePPMHeader(out, binary, this.height, this.width, this.maxValue);
+      for (int row = 0; row < this.height; row += rows) {
+        int count = Math.min(rows, this.height - row);
+        Raster band = full.take();
+        int[] data = band.getData();
+        for (int i = 0; i < count; i++) {
+          CollagePPM.writePPMRow(out, binary, data, i * this.width, this.width, max);
+        }
+        free.put(band);
+        progress.advance(count);
+      }
+    }
+  }
+
+  /*
+   * Helper method that cancels the encoder and waits for its thread to close the file, keeping
+   * the interrupt of the calling thread.
+   */
+  private static void stop(FutureTask<Void> encoder, Thread thread) {
+    encoder.cancel(true);
+    boolean interrupted = Thread.interrupted();
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -2,6 +2,8 @@ package model;
 
 import java.util.Objects;
 
+import util.PixelArrayUtil;
+
 /**
  * A class that represents a Filter that changes pixels.
  */
@@ -57,6 +59,117 @@ public enum Filter implements IFilter {
     }
   }
 
+  /**
+   * Apply this filter to the given packed ARGB color using the packed color below it.
+   *
+   * @param curr     - the packed color the filter is applied to
+   * @param prev     - the filtered packed color of the layer below
+   * @param maxValue - the max value of the channels
+   * @return - the packed color with the filter applied
+   */
+  public int apply(int curr, int prev, int maxValue) {
+    switch (this.option) {
+      case "darken":
+        return PixelArrayUtil.darkenARGB(curr, prev, maxValue);
+      case "brighten":
+        return PixelArrayUtil.brightenARGB(curr, prev, maxValue);
+      case "invert":
+        return PixelArrayUtil.invertARGB(curr, prev);
+      default:
+        return this.apply(curr, maxValue);
+    }
+  }
+
+  /**
+   * Apply this filter to the given packed ARGB color when there is no layer below it.
+   * Filters that need the layer below leave the color unchanged.
+   *
+   * @param curr     - the packed color the filter is applied to
+   * @param maxValue - the max value of the channels
+   * @return - the packed color with the filter applied
+   */
+  public int apply(int curr, int maxValue) {
+    switch (this.option) {
+      case "red-component":
+        return curr & 0xFFFF0000;
+      case "green-component":
+        return curr & 0xFF00FF00;
+      case "blue-component":
+        return curr & 0xFF0000FF;
+      default:
+        return curr;
+    }
+  }
+
+  /**
+   * Apply this filter to part of a row of packed ARGB colors using the filtered row of the
+   * layer below. The filter is chosen once for the whole row and the row is passed to a
+   * bulk kernel.
+   *
+   * @param curr     - the packed colors the filter is applied to
+   * @param prev     - the filtered packed colors of the layer below, or null if there is none
+   * @param dest     - the array the filtered colors are written to, which may be curr
+   * @param offset   - the first column to filter
+   * @param length   - the number of colors to filter
+   * @param maxValue - the max value of the channels
+   */
+  public void applyRow(int[] curr, int[] prev, int[] dest, int offset, int length,
+                       int maxValue) {
+    switch (this.option) {
+      case "red-component":
+        PixelArrayUtil.maskRow(curr, dest, offset, length, 0xFFFF0000);
+        return;
+      case "green-component":
+        PixelArrayUtil.maskRow(curr, dest, offset, length, 0xFF00FF00);
+        return;
+      case "blue-component":
+        PixelArrayUtil.maskRow(curr, dest, offset, length, 0xFF0000FF);
+        return;
+      case "darken":
+        if (Objects.nonNull(prev)) {
+          PixelArrayUtil.darkenRow(curr, prev, dest, offset, length, maxValue);
+          return;
+        }
+        break;
+      case "brighten":
+        if (Objects.nonNull(prev)) {
+          PixelArrayUtil.brightenRow(curr, prev, dest, offset, length, maxValue);
+          return;
+        }
+        break;
+      case "invert":
+        if (Objects.nonNull(prev)) {
+          PixelArrayUtil.invertRow(curr, prev, dest, offset, length);
+          return;
+        }
+        break;
+      default:
+        break;
+    }
+
+    // the filter leaves the colors unchanged
+    if (curr != dest) {
+      System.arraycopy(curr, offset, dest, offset, length);
+    }
+  }
+
+  /**
+   * Returns whether this filter reads the filtered layer below.
+   * The component filters only mask the color channels and keep the alpha.
+   *
+   * @return - true if the filtered colors depend on the layer below
+   */
+  public boolean readsBelow() {
+    switch (this.option) {
+      case "darken":
+      case "brighten":
+      case "invert":
+        return true;
+      default:
+        return false;
+    }
+  }
+
   /**
    * Find the filter object with the given option.
    *
@@ -15,6 +15,48 @@ public interface IFilter {
    */
   IPixel apply(IPixel... pixels);
 
+  /**
+   * Apply this filter to the given packed ARGB color using the packed color below it.
+   *
+   * @param curr     - the packed color the filter is applied to
+   * @param prev     - the filtered packed color of the layer below
+   * @param maxValue - the max value of the channels
+   * @return - the packed color with the filter applied
+   */
+  int apply(int curr, int prev, int maxValue);
+
+  /**
+   * Apply this filter to the given packed ARGB color when there is no layer below it.
+   * Filters that need the layer below leave the color unchanged.
+   *
+   * @param curr     - the packed color the filter is applied to
+   * @param maxValue - the max value of the channels
+   * @return - the packed color with the filter applied
+   */
+  int apply(int curr, int maxValue);
+
+  /**
+   * Apply this filter to part of a row of packed ARGB colors using the filtered row of the
+   * layer below. Every array is indexed by column.
+   *
+   * @param curr     - the packed colors the filter is applied to
+   * @param prev     - the filtered packed colors of the layer below, or null if there is none
+   * @param dest     - the array the filtered colors are written to, which may be curr
+   * @param offset   - the first column to filter
+   * @param length   - the number of colors to filter
+   * @param maxValue - the max value of the channels
+   */
+  void applyRow(int[] curr, int[] prev, int[] dest, int offset, int length, int maxValue);
+
+  /**
+   * Returns whether this filter reads the filtered layer below.
+   * A filter that does not read the layer below keeps the alpha of every color, so an opaque
+   * color stays opaque and does not depend on the layers below it.
+   *
+   * @return - true if the filtered colors depend on the layer below
+   */
+  boolean readsBelow();
+
   /**
    * Returns this filter's option.
    *
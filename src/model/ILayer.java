@@ -1,5 +1,6 @@
 package model;
 
+import java.awt.Rectangle;
 import java.util.List;
 
 /**
@@ -54,6 +55,69 @@ public interface ILayer extends IListOfPixel {
    */
   void setPixel(IPosn pos, IPixel p);
 
+  /**
+   * Sets the packed ARGB color at the given row and column.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed color
+   * @throws IllegalArgumentException - when the position is outside of this layer
+   */
+  void setARGB(int row, int col, int argb) throws IllegalArgumentException;
+
+  /**
+   * Overwrites the given row of this layer with the packed ARGB colors of the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this layer long
+   * @throws IllegalArgumentException - when the row is outside of this layer OR
+   *                                  when the array is too short
+   */
+  void setRow(int row, int[] src) throws IllegalArgumentException;
+
+  /**
+   * Returns the region of this layer that changed since the last time it was taken and
+   * starts tracking a new empty region.
+   * Changes to the colors and to the filter of the layer are tracked.
+   *
+   * @return - the changed region where x is the column and y is the row, or null if
+   *           nothing changed
+   */
+  Rectangle takeDirtyRegion();
+
+  /**
+   * Returns whether every color of part of the given row is fully opaque, so the layers below
+   * it do not show through. The answer may be false for colors that are opaque.
+   *
+   * @param row    - the row of the colors
+   * @param col    - the first column of the colors
+   * @param length - the number of colors
+   * @return - true if the colors are known to be fully opaque
+   * @throws IllegalArgumentException - when the colors are outside of this layer
+   */
+  boolean isOpaque(int row, int col, int length) throws IllegalArgumentException;
+
+  /**
+   * Returns whether every color of part of the given row is fully transparent, so this layer
+   * does not change the colors below it. The answer may be false for colors that are
+   * transparent.
+   *
+   * @param row    - the row of the colors
+   * @param col    - the first column of the colors
+   * @param length - the number of colors
+   * @return - true if the colors are known to be fully transparent
+   * @throws IllegalArgumentException - when the colors are outside of this layer
+   */
+  boolean isTransparent(int row, int col, int length) throws IllegalArgumentException;
+
+  /**
+   * Returns the version of this layer, which increases every time its colors or its filter
+   * change.
+   *
+   * @return - the version of this layer
+   */
+  long getVersion();
+
   /**
    * Applies the filter to this layer.
    *
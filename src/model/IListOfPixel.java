@@ -22,6 +22,39 @@ public interface IListOfPixel {
    */
   IPixel getPixel(IPosn pos);
 
+  /**
+   * Returns the packed ARGB color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed color at the coordinate
+   * @throws IllegalArgumentException - when the position is outside of this object
+   */
+  int getARGB(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Copies the packed ARGB colors of the given row into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this object long
+   * @throws IllegalArgumentException - when the row is outside of this object OR
+   *                                  when the array is too short
+   */
+  void getRow(int row, int[] dest) throws IllegalArgumentException;
+
+  /**
+   * Copies the packed ARGB colors of part of the given row into the same columns of the
+   * destination array.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this object OR
+   *                                  when the array is too short
+   */
+  void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException;
+
   /**
    * Returns the height of this IListOfPixel.
    *
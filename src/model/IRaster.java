@@ -0,0 +1,93 @@
+package model;
+
+/**
+ * An interface that represents a rectangular grid of packed ARGB colors that a layer stores
+ * its colors in.
+ */
+public interface IRaster {
+
+  /**
+   * Returns the height of this raster.
+   *
+   * @return - the number of rows
+   */
+  int getHeight();
+
+  /**
+   * Returns the width of this raster.
+   *
+   * @return - the number of columns
+   */
+  int getWidth();
+
+  /**
+   * Returns the packed color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  int get(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Sets the packed color at the given row and column.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  void set(int row, int col, int argb) throws IllegalArgumentException;
+
+  /**
+   * Copies the given row of this raster into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  void getRow(int row, int[] dest) throws IllegalArgumentException;
+
+  /**
+   * Overwrites the given row of this raster with the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  void setRow(int row, int[] src) throws IllegalArgumentException;
+
+  /**
+   * Copies part of the given row of this raster into the same columns of the destination array.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException;
+
+  /**
+   * Overwrites part of the given row of this raster with the same columns of the source array.
+   *
+   * @param row    - the row to overwrite
+   * @param col    - the first column to overwrite
+   * @param length - the number of columns to overwrite
+   * @param src    - the packed colors, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  void setRow(int row, int col, int length, int[] src) throws IllegalArgumentException;
+
+  /**
+   * Returns a deep copy of this raster. Changes to either raster do not show in the other.
+   *
+   * @return - a raster with the same colors as this raster
+   */
+  IRaster copy();
+}
@@ -9,11 +9,12 @@ import util.PixelArrayUtil;
 
 /**
  * A class that represents an Image.
+ * The colors of the image are stored in a packed ARGB raster.
  */
 public class Image implements IImage {
   private int height;
   private int width;
-  private IPixel[][] image;
+  private Raster image;
   private IPosn pos;
   private int maxValue;
 
@@ -33,7 +34,7 @@ public class Image implements IImage {
     this.height = height;
     this.width = width;
     this.pos = pos;
-    this.image = new Pixel[this.height][this.width];
+    this.image = null;
     this.maxValue = 255;
   }
 
@@ -67,8 +68,38 @@ public class Image implements IImage {
     this.height = img.length;
     this.width = img[0].length;
     this.pos = pos;
-    this.image = img;
-    this.maxValue = PixelArrayUtil.getMaxValue(this.image);
+    this.image = new Raster(this.height, this.width);
+    this.maxValue = PixelArrayUtil.getMaxValue(img);
+
+    // pack the pixels into the raster
+    for (int i = 0; i < this.height; i++) {
+      for (int j = 0; j < this.width; j++) {
+        this.image.set(i, j, Raster.pack(img[i][j].getValues()));
+      }
+    }
+  }
+
+  /**
+   * Creates an Image object with the given raster, max value, and position.
+   *
+   * @param raster   - the packed colors of the image
+   * @param maxValue - the max value of the channels
+   * @param pos      - the position of the image in the layer
+   * @throws IllegalArgumentException - when the given objects are null OR
+   *                                  when the max value is less than or equal to zero
+   */
+  public Image(Raster raster, int maxValue, Posn pos) throws IllegalArgumentException {
+    if (Objects.isNull(raster) || Objects.isNull(pos)) {
+      throw new IllegalArgumentException("Invalid input!");
+    }
+    if (maxValue <= 0) {
+      throw new IllegalArgumentException("Invalid max value input!");
+    }
+    this.height = raster.getHeight();
+    this.width = raster.getWidth();
+    this.pos = pos;
+    this.image = raster;
+    this.maxValue = maxValue;
   }
 
   /**
@@ -79,9 +110,9 @@ public class Image implements IImage {
   public List<IPixel> render() {
     List<IPixel> pixels = new ArrayList<IPixel>();
     // fill the list with pixels
-    for (IPixel[] row : this.image) {
-      for (IPixel pixel : row) {
-        pixels.add(pixel);
+    for (int i = 0; i < this.height; i++) {
+      for (int j = 0; j < this.width; j++) {
+        pixels.add(this.getPixel(new Posn(i, j)));
       }
     }
 
@@ -98,11 +129,56 @@ public class Image implements IImage {
     int row = pos.getRow();
     int col = pos.getCol();
 
-    try {
-      return image[row][col];
-    } catch (NullPointerException e) {
+    return PixelArrayUtil.toPixel(this.getARGB(row, col), this.maxValue, row, col);
+  }
+
+  /**
+   * Returns the packed ARGB color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed color at the coordinate
+   * @throws IllegalArgumentException - when the image is not initialized OR
+   *                                  when the position is outside of this image
+   */
+  public int getARGB(int row, int col) throws IllegalArgumentException {
+    if (Objects.isNull(this.image)) {
+      throw new IllegalArgumentException("Image is not initialized!");
+    }
+    return this.image.get(row, col);
+  }
+
+  /**
+   * Copies the packed ARGB colors of the given row into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into
+   * @throws IllegalArgumentException - when the image is not initialized OR
+   *                                  when the row is outside of this image
+   */
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    if (Objects.isNull(this.image)) {
+      throw new IllegalArgumentException("Image is not initialized!");
+    }
+    this.image.getRow(row, dest);
+  }
+
+  /**
+   * Copies the packed ARGB colors of part of the given row into the same columns of the
+   * destination array.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the image is not initialized OR
+   *                                  when the span is outside of this image
+   */
+  public void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException {
+    if (Objects.isNull(this.image)) {
       throw new IllegalArgumentException("Image is not initialized!");
     }
+    this.image.getRow(row, col, length, dest);
   }
 
   /**
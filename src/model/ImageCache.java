@@ -0,0 +1,219 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * A class that caches the decoded colors of image files, so an image that is placed many times
+ * is only read and decoded once. An image is keyed by the canonical path of its file, and it is
+ * only returned while the file still has the size and modification time it had when it was
+ * read. The images are evicted in least recently used order once they use more memory than
+ * the budget, and the number of lookups that were and were not found are counted.
+ */
+final class ImageCache {
+  private final long budget;
+  private final LinkedHashMap<String, Entry> images;
+  private long size;
+  private long hits;
+  private long misses;
+
+  /**
+   * Creates an empty cache that holds at most the given number of bytes of images.
+   *
+   * @param budget - the number of bytes the images may use
+   * @throws IllegalArgumentException - when the budget is negative
+   */
+  ImageCache(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Invalid cache budget!");
+    }
+    this.budget = budget;
+    this.images = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the number of bytes an image of the given size uses.
+   *
+   * @param height - the height of the image
+   * @param width  - the width of the image
+   * @return - the size of the image
+   */
+  static long imageSize(int height, int width) {
+    return (long) Integer.BYTES * height * width;
+  }
+
+  /**
+   * Returns the key of the given file as it is now.
+   *
+   * @param file - the image file
+   * @return - the canonical path, size and modification time of the file
+   * @throws IOException - when the canonical path of the file could not be found
+   */
+  static Key keyOf(File file) throws IOException {
+    return new Key(file.getCanonicalPath(), file.length(), file.lastModified());
+  }
+
+  /**
+   * Returns the decoded colors of the file with the given key and marks them as recently used.
+   * Colors that were decoded from an older version of the file are removed.
+   *
+   * @param key - the key of the file
+   * @return - the colors of the image, or null if they are not cached
+   */
+  synchronized Raster get(Key key) {
+    Entry entry = this.images.get(key.path);
+    if (Objects.nonNull(entry) && !entry.key.equals(key)) {
+      this.remove(key.path);
+      entry = null;
+    }
+    if (Objects.isNull(entry)) {
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    return entry.raster;
+  }
+
+  /**
+   * Returns whether an image of the given size can be cached at all.
+   *
+   * @param height - the height of the image
+   * @param width  - the width of the image
+   * @return - true if the image is not larger than the budget
+   */
+  boolean fits(int height, int width) {
+    return imageSize(height, width) <= this.budget;
+  }
+
+  /**
+   * Caches the decoded colors of the file with the given key and evicts the least recently used
+   * images until the cache fits in its budget. Images larger than the budget are not cached.
+   * The colors must not be changed once they are cached.
+   *
+   * @param key    - the key of the file
+   * @param raster - the colors of the whole image
+   */
+  synchronized void put(Key key, Raster raster) {
+    if (!this.fits(raster.getHeight(), raster.getWidth())) {
+      return;
+    }
+    this.remove(key.path);
+    this.images.put(key.path, new Entry(key, raster));
+    this.size += imageSize(raster.getHeight(), raster.getWidth());
+
+    // evict from the least recently used image
+    Iterator<Entry> iter = this.images.values().iterator();
+    while (this.size > this.budget) {
+      Raster evicted = iter.next().raster;
+      this.size -= imageSize(evicted.getHeight(), evicted.getWidth());
+      iter.remove();
+    }
+  }
+
+  /**
+   * Returns the number of bytes the images may use.
+   *
+   * @return - the budget of this cache
+   */
+  long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the number of bytes the cached images use.
+   *
+   * @return - the size of the cached images
+   */
+  synchronized long getSize() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of lookups that found a cached image.
+   *
+   * @return - the number of hits
+   */
+  synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Returns the number of lookups that did not find a cached image.
+   *
+   * @return - the number of misses
+   */
+  synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Removes every image from this cache.
+   */
+  synchronized void clear() {
+    this.images.clear();
+    this.size = 0;
+  }
+
+  /*
+   * Helper method that removes the image of the given path, if it is cached.
+   */
+  private void remove(String path) {
+    Entry old = this.images.remove(path);
+    if (Objects.nonNull(old)) {
+      this.size -= imageSize(old.raster.getHeight(), old.raster.getWidth());
+    }
+  }
+
+  /**
+   * A class that represents the version of an image file that was read.
+   */
+  static final class Key {
+    private final String path;
+    private final long length;
+    private final long modified;
+
+    /**
+     * Creates the key of a version of an image file.
+     *
+     * @param path     - the canonical path of the file
+     * @param length   - the size of the file in bytes
+     * @param modified - the time the file was last modified
+     */
+    Key(String path, long length, long modified) {
+      this.path = path;
+      this.length = length;
+      this.modified = modified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.path.equals(other.path) && this.length == other.length
+              && this.modified == other.modified;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.path, this.length, this.modified);
+    }
+  }
+
+  /*
+   * A class that represents a cached image and the version of the file it was decoded from.
+   */
+  private static final class Entry {
+    private final Key key;
+    private final Raster raster;
+
+    private Entry(Key key, Raster raster) {
+      this.key = key;
+      this.raster = raster;
+    }
+  }
+}
@@ -1,20 +1,37 @@
 package model;
 
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import util.PixelArrayUtil;
+
 /**
  * A class that represents a Layer.
+ * The colors of the layer are stored in a packed ARGB raster and Pixels are only
+ * created when they are requested. A new layer stores its colors in tiles that are only
+ * created when they are drawn on.
  */
 public class Layer implements ILayer {
+  // the number of columns of a row whose opaque and transparent colors are counted together
+  private static final int SPAN = 64;
+
   private String name;
   private int height;
   private int width;
-  private IPixel[][] matrix;
+  private IRaster raster;
   private IFilter filter;
   private List<IImage> images;
   private int maxValue;
+  private Rectangle dirty;
+  private long version;
+  private int spans;
+  private int[] opaque;
+  private int[] clear;
+  private int color;
+  private volatile boolean uncounted;
+  private boolean rendered;
 
   /**
    * Creates a layer of pixels with the given height and width.
@@ -27,24 +44,139 @@ public class Layer implements ILayer {
    *                                  when the name is null
    */
   public Layer(String name, int height, int width, int maxValue) throws IllegalArgumentException {
-    if (Objects.isNull(name) || height <= 0 || width <= 0 || maxValue <= 0) {
+    // every color starts out transparent
+    this(name, height, width, maxValue, Raster.pack(maxValue, maxValue, maxValue, 0));
+  }
+
+  /**
+   * Creates a layer of one color with the given height and width.
+   * The color is only stored once, and memory is only used for the parts of the layer that are
+   * drawn on.
+   *
+   * @param name     - the name of this layer
+   * @param height   - the height of the layer
+   * @param width    - the width of the layer
+   * @param maxValue - the max value of the channels
+   * @param color    - the packed ARGB color of every position of the layer
+   * @throws IllegalArgumentException - when the dimensions are less than or equal to zero OR
+   *                                  when the name is null
+   */
+  public Layer(String name, int height, int width, int maxValue, int color)
+          throws IllegalArgumentException {
+    this(name, createRaster(name, height, width, maxValue, color), maxValue, color);
+  }
+
+  /**
+   * Creates a layer of one color that stores its colors in the given raster, such as a raster
+   * whose tiles are kept on disk. The raster must be the given color everywhere.
+   *
+   * @param name     - the name of this layer
+   * @param raster   - the packed colors of the layer
+   * @param maxValue - the max value of the channels
+   * @param color    - the packed ARGB color of every position of the layer
+   * @throws IllegalArgumentException - when the name or raster is null OR
+   *                                  when the max value is less than or equal to zero
+   */
+  Layer(String name, IRaster raster, int maxValue, int color) throws IllegalArgumentException {
+    if (Objects.isNull(name) || Objects.isNull(raster) || maxValue <= 0) {
       throw new IllegalArgumentException("Invalid Layer inputs!");
     }
     this.name = name;
-    this.height = height; //row
-    this.width = width; // column
-    this.matrix = new Pixel[this.height][this.width];
+    this.height = raster.getHeight(); //row
+    this.width = raster.getWidth(); // column
+    this.raster = raster;
     this.filter = Filter.NORMAL;
     this.images = new ArrayList<IImage>();
     this.maxValue = maxValue;
+    this.dirty = new Rectangle(0, 0, this.width, this.height);
+    this.spans = (this.width + SPAN - 1) / SPAN;
 
-    // creates the translucent image and set it as the background
-    for (int i = 0; i < this.height; ++i) {
-      for (int j = 0; j < this.width; ++j) {
-        matrix[i][j] = new Pixel(this.maxValue, this.maxValue, this.maxValue,
-                0, this.maxValue, new Posn(i, j));
-      }
+    // the spans are only counted once the layer is drawn on
+    this.color = color;
+  }
+
+  /**
+   * Creates a layer with the given name that uses the given raster as its colors.
+   *
+   * @param name     - the name of this layer
+   * @param raster   - the packed colors of the layer
+   * @param maxValue - the max value of the channels
+   * @throws IllegalArgumentException - when the name or raster is null OR
+   *                                  when the max value is less than or equal to zero
+   */
+  public Layer(String name, Raster raster, int maxValue) throws IllegalArgumentException {
+    if (Objects.isNull(name) || Objects.isNull(raster) || maxValue <= 0) {
+      throw new IllegalArgumentException("Invalid Layer inputs!");
     }
+    this.name = name;
+    this.height = raster.getHeight();
+    this.width = raster.getWidth();
+    this.raster = raster;
+    this.filter = Filter.NORMAL;
+    this.images = new ArrayList<IImage>();
+    this.maxValue = maxValue;
+    this.dirty = new Rectangle(0, 0, this.width, this.height);
+    this.spans = (this.width + SPAN - 1) / SPAN;
+    this.countAlpha(0, 0, this.height, this.width);
+  }
+
+  /**
+   * Creates a layer with the given name that uses the given raster as its colors, which may not
+   * have been read yet, such as a raster mapped from a project file. The opaque and transparent
+   * colors are only counted the first time they are needed, so the raster is not read until the
+   * layer is rendered or changed.
+   *
+   * @param name     - the name of the layer
+   * @param raster   - the packed colors of the layer, with the default color of a new layer
+   * @param maxValue - the max value of the channels
+   * @return - the layer
+   * @throws IllegalArgumentException - when the name or raster is null OR
+   *                                  when the max value is less than or equal to zero
+   */
+  static Layer mapped(String name, IRaster raster, int maxValue)
+          throws IllegalArgumentException {
+    Layer layer = new Layer(name, raster, maxValue, Raster.pack(maxValue, maxValue, maxValue, 0));
+    layer.uncounted = true;
+    return layer;
+  }
+
+  /**
+   * Creates a layer with the given name that owns the given raster, such as a composite rendered
+   * by saveImage. No other layer or model uses the raster, so an image made from the layer may
+   * share its colors without copying them.
+   *
+   * @param name     - the name of the layer
+   * @param raster   - the packed colors of the layer, used by nothing else
+   * @param maxValue - the max value of the channels
+   * @return - the layer
+   * @throws IllegalArgumentException - when the name or raster is null OR
+   *                                  when the max value is less than or equal to zero
+   */
+  static Layer rendered(String name, Raster raster, int maxValue)
+          throws IllegalArgumentException {
+    Layer layer = new Layer(name, raster, maxValue);
+    layer.rendered = true;
+    return layer;
+  }
+
+  /**
+   * Determines if this layer was rendered by saveImage and owns a raster nothing else uses.
+   *
+   * @return - true if this layer's raster may be shared with an image, false otherwise
+   */
+  boolean isRendered() {
+    return this.rendered;
+  }
+
+  /*
+   * Helper method that checks the inputs of a new layer of one color and creates its tiles.
+   */
+  private static IRaster createRaster(String name, int height, int width, int maxValue,
+                                      int color) throws IllegalArgumentException {
+    if (Objects.isNull(name) || height <= 0 || width <= 0 || maxValue <= 0) {
+      throw new IllegalArgumentException("Invalid Layer inputs!");
+    }
+    return new TiledRaster(height, width, color);
   }
 
   /**
@@ -78,6 +210,9 @@ public class Layer implements ILayer {
    * Sets a new filter for the Layer.
    */
   public void setFilter(IFilter filter) {
+    if (this.filter != filter) {
+      this.markDirty(0, 0, this.height, this.width);
+    }
     this.filter = filter;
   }
 
@@ -109,7 +244,7 @@ public class Layer implements ILayer {
     int row = pos.getRow();
     int col = pos.getCol();
 
-    return this.matrix[row][col];
+    return PixelArrayUtil.toPixel(this.raster.get(row, col), this.maxValue, row, col);
   }
 
   /**
@@ -121,7 +256,150 @@ public class Layer implements ILayer {
     int row = pos.getRow();
     int col = pos.getCol();
 
-    this.matrix[row][col] = p;
+    int argb = Raster.pack(p.getValues());
+    this.updateAlpha(row, col, this.raster.get(row, col), argb);
+    this.raster.set(row, col, argb);
+    this.markDirty(row, col, 1, 1);
+  }
+
+  /**
+   * Returns the packed ARGB color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed color at the coordinate
+   */
+  public int getARGB(int row, int col) {
+    return this.raster.get(row, col);
+  }
+
+  /**
+   * Sets the packed ARGB color at the given row and column.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed color
+   */
+  public void setARGB(int row, int col, int argb) {
+    this.updateAlpha(row, col, this.raster.get(row, col), argb);
+    this.raster.set(row, col, argb);
+    this.markDirty(row, col, 1, 1);
+  }
+
+  /**
+   * Copies the packed ARGB colors of the given row into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into
+   */
+  public void getRow(int row, int[] dest) {
+    this.raster.getRow(row, dest);
+  }
+
+  /**
+   * Copies the packed ARGB colors of part of the given row into the same columns of the
+   * destination array.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   */
+  public void getRow(int row, int col, int length, int[] dest) {
+    this.raster.getRow(row, col, length, dest);
+  }
+
+  /**
+   * Overwrites the given row of this layer with the packed ARGB colors of the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors
+   */
+  public void setRow(int row, int[] src) {
+    this.raster.setRow(row, src);
+    this.countAlpha(row, 0, 1, this.width);
+    this.markDirty(row, 0, 1, this.width);
+  }
+
+  /**
+   * Returns the region of this layer that changed since the last time it was taken and
+   * starts tracking a new empty region.
+   *
+   * @return - the changed region where x is the column and y is the row, or null if
+   *           nothing changed
+   */
+  public Rectangle takeDirtyRegion() {
+    Rectangle region = this.dirty;
+    this.dirty = null;
+    return region;
+  }
+
+  /**
+   * Returns whether every color of part of the given row is fully opaque.
+   * The opaque colors are counted in spans of columns, so a span that is only partly inside
+   * the given columns must be fully opaque as well.
+   *
+   * @param row    - the row of the colors
+   * @param col    - the first column of the colors
+   * @param length - the number of colors
+   * @return - true if the colors are known to be fully opaque
+   * @throws IllegalArgumentException - when the colors are outside of this layer
+   */
+  public boolean isOpaque(int row, int col, int length) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || length <= 0 || col + length > this.width) {
+      throw new IllegalArgumentException("Invalid Layer position!");
+    }
+    if (this.uncounted) {
+      this.countRaster();
+    }
+    if (Objects.isNull(this.opaque)) {
+      return Raster.alpha(this.color) == this.maxValue;
+    }
+    for (int s = col / SPAN; s <= (col + length - 1) / SPAN; s++) {
+      if (this.opaque[row * this.spans + s] != this.spanWidth(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether every color of part of the given row is fully transparent.
+   * The transparent colors are counted in spans of columns, so a span that is only partly
+   * inside the given columns must be fully transparent as well.
+   *
+   * @param row    - the row of the colors
+   * @param col    - the first column of the colors
+   * @param length - the number of colors
+   * @return - true if the colors are known to be fully transparent
+   * @throws IllegalArgumentException - when the colors are outside of this layer
+   */
+  public boolean isTransparent(int row, int col, int length) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || length <= 0 || col + length > this.width) {
+      throw new IllegalArgumentException("Invalid Layer position!");
+    }
+    if (this.uncounted) {
+      this.countRaster();
+    }
+    if (Objects.isNull(this.clear)) {
+      return Raster.alpha(this.color) == 0;
+    }
+    for (int s = col / SPAN; s <= (col + length - 1) / SPAN; s++) {
+      if (this.clear[row * this.spans + s] != this.spanWidth(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the version of this layer, which increases every time its colors or its filter
+   * change.
+   *
+   * @return - the version of this layer
+   */
+  public long getVersion() {
+    return this.version;
   }
 
   /**
@@ -133,9 +411,9 @@ public class Layer implements ILayer {
     List<IPixel> l = new ArrayList<IPixel>();
 
     // add each pixel of the layer
-    for (IPixel[] row : this.matrix) {
-      for (IPixel pixel : row) {
-        l.add(pixel);
+    for (int i = 0; i < this.height; i++) {
+      for (int j = 0; j < this.width; j++) {
+        l.add(PixelArrayUtil.toPixel(this.raster.get(i, j), this.maxValue, i, j));
       }
     }
 
@@ -155,12 +433,14 @@ public class Layer implements ILayer {
       throw new IllegalArgumentException("Invalid matrix input!");
     }
 
-    // Populate the current matrix
+    // Populate the current raster
     for (int i = 0; i < this.height; i++) {
       for (int j = 0; j < this.width; j++) {
-        this.setPixel(new Posn(i, j), pixels[i][j]);
+        this.raster.set(i, j, Raster.pack(pixels[i][j].getValues()));
       }
     }
+    this.countAlpha(0, 0, this.height, this.width);
+    this.markDirty(0, 0, this.height, this.width);
   }
 
   /**
@@ -181,23 +461,33 @@ public class Layer implements ILayer {
     // Gather information of the image
     IPosn position = img.getPos();
 
-    for (int i = 0; i < img.getHeight(); ++i) {
-      for (int j = 0; j < img.getWidth(); ++j) {
-        int row = (position.getRow() + i) < this.height ? (position.getRow() + i) : -1;
-        int col = (position.getCol() + j) < this.width ? (position.getCol() + j) : -1;
+    // only visit the part of the image that is inside the canvas
+    int startRow = Math.max(0, -position.getRow());
+    int endRow = Math.min(img.getHeight(), this.height - position.getRow());
+    int startCol = Math.max(0, -position.getCol());
+    int endCol = Math.min(img.getWidth(), this.width - position.getCol());
 
-        // if the row or col is not more than the canvas
-        if (!(row < 0 || col < 0)) {
-          // create the new pixel
-          IPixel newPixel = img.getPixel(new Posn(i, j));
-          newPixel = newPixel.combine(this.matrix[row][col]);
-          newPixel.changePos(new Posn(row, col));
+    if (startRow >= endRow || startCol >= endCol) {
+      return;
+    }
 
-          // set the pixel at the row and column
-          this.matrix[row][col] = newPixel;
-        }
-      }
+    int[] imgRow = new int[img.getWidth()];
+    int[] layerRow = new int[this.width];
+    int col = position.getCol() + startCol;
+    int length = endCol - startCol;
+    for (int i = startRow; i < endRow; ++i) {
+      int row = position.getRow() + i;
+      img.getRow(i, imgRow);
+      this.raster.getRow(row, col, length, layerRow);
+
+      // combine the visible image colors over the current colors
+      PixelArrayUtil.combineRow(imgRow, startCol, layerRow, col, length, img.getMax());
+      this.raster.setRow(row, col, length, layerRow);
     }
+    this.countAlpha(position.getRow() + startRow, position.getCol() + startCol,
+            endRow - startRow, endCol - startCol);
+    this.markDirty(position.getRow() + startRow, position.getCol() + startCol,
+            endRow - startRow, endCol - startCol);
   }
 
   /**
@@ -215,13 +505,14 @@ public class Layer implements ILayer {
     // Combined layer with the filter on it
     ILayer compressed = new Layer("combined", this.height, this.width, this.maxValue);
 
-    // Traverse the matrix of each layer
+    // Traverse the raster of each layer row by row
+    int[] currRow = new int[this.width];
+    int[] combinedRow = new int[this.width];
     for (int i = 0; i < this.height; i++) {
-      for (int j = 0; j < this.width; j++) {
-        IPixel p1 = this.getPixel(new Posn(i, j));
-        IPixel p2 = prev.getPixel(new Posn(i, j));
-        compressed.setPixel(new Posn(i, j), p1.combine(p2));
-      }
+      this.raster.getRow(i, currRow);
+      prev.getRow(i, combinedRow);
+      PixelArrayUtil.combineRow(currRow, 0, combinedRow, 0, this.width, this.maxValue);
+      compressed.setRow(i, combinedRow);
     }
 
     // Return the new combined layer
@@ -245,7 +536,8 @@ public class Layer implements ILayer {
     for (int i = 0; i < this.height; i++) {
       for (int j = 0; j < this.width; j++) {
         Posn p = new Posn(i, j);
-        filtered.setPixel(p, this.filter.apply(this.getPixel(p), prev.getPixel(p)));
+        filtered.setARGB(i, j, Raster.pack(
+                this.filter.apply(this.getPixel(p), prev.getPixel(p)).getValues()));
       }
     }
 
@@ -256,14 +548,143 @@ public class Layer implements ILayer {
   /**
    * Applies the filter to this layer only.
    *
-   * @return - the modified layer with the filter
+   * @return - the Layer with the applied filter
    */
   private Layer applyBackgroundFilter() {
-    // apply the filter to this Layer
-    for (IPixel p : this.render()) {
-      this.setPixel(p.getPos(), this.filter.apply(p));
+    Layer filtered = new Layer(this.name, new Raster(this.height, this.width), this.maxValue);
+    filtered.setFilter(this.filter);
+
+    // apply the filter to each row of this Layer
+    int[] row = new int[this.width];
+    for (int i = 0; i < this.height; i++) {
+      this.raster.getRow(i, row);
+      this.filter.applyRow(row, null, row, 0, this.width, this.maxValue);
+      filtered.setRow(i, row);
+    }
+    return filtered;
+  }
+
+  /*
+   * Helper method that recounts the opaque and transparent colors of every span that overlaps
+   * the given rows and columns.
+   */
+  private void countAlpha(int row, int col, int rows, int cols) {
+    this.createCounts();
+    int from = (col / SPAN) * SPAN;
+    int to = Math.min(this.width, ((col + cols - 1) / SPAN + 1) * SPAN);
+    int[] buffer = new int[this.width];
+    for (int i = row; i < row + rows; i++) {
+      this.raster.getRow(i, from, to - from, buffer);
+      for (int s = from / SPAN; s * SPAN < to; s++) {
+        int opaqueCount = 0;
+        int clearCount = 0;
+        for (int k = s * SPAN; k < s * SPAN + this.spanWidth(s); k++) {
+          int alpha = Raster.alpha(buffer[k]);
+          opaqueCount += alpha == this.maxValue ? 1 : 0;
+          clearCount += alpha == 0 ? 1 : 0;
+        }
+        this.opaque[i * this.spans + s] = opaqueCount;
+        this.clear[i * this.spans + s] = clearCount;
+      }
+    }
+  }
+
+  /*
+   * Helper method that updates the counts of the span of one color that changes.
+   */
+  private void updateAlpha(int row, int col, int old, int argb) {
+    this.createCounts();
+    int span = row * this.spans + col / SPAN;
+    this.opaque[span] += (Raster.alpha(argb) == this.maxValue ? 1 : 0)
+            - (Raster.alpha(old) == this.maxValue ? 1 : 0);
+    this.clear[span] += (Raster.alpha(argb) == 0 ? 1 : 0) - (Raster.alpha(old) == 0 ? 1 : 0);
+  }
+
+  /*
+   * Helper method that counts every span of a layer whose raster has not been read yet.
+   * The compositor asks for the counts from several threads at once, so only one counts.
+   */
+  private synchronized void countRaster() {
+    if (!this.uncounted) {
+      return;
+    }
+    this.opaque = new int[this.height * this.spans];
+    this.clear = new int[this.height * this.spans];
+    this.countAlpha(0, 0, this.height, this.width);
+    this.uncounted = false;
+  }
+
+  /*
+   * Helper method that creates the counts of every span from the color of this layer the first
+   * time the layer is drawn on.
+   */
+  private void createCounts() {
+    if (Objects.nonNull(this.opaque)) {
+      return;
+    }
+    if (this.uncounted) {
+      this.countRaster();
+      return;
+    }
+    this.opaque = new int[this.height * this.spans];
+    this.clear = new int[this.height * this.spans];
+    boolean opaqueColor = Raster.alpha(this.color) == this.maxValue;
+    boolean clearColor = Raster.alpha(this.color) == 0;
+    for (int i = 0; i < this.opaque.length; i++) {
+      this.opaque[i] = opaqueColor ? this.spanWidth(i % this.spans) : 0;
+      this.clear[i] = clearColor ? this.spanWidth(i % this.spans) : 0;
+    }
+  }
+
+  /*
+   * Helper method that returns the number of columns of the given span.
+   */
+  private int spanWidth(int span) {
+    return Math.min(SPAN, this.width - span * SPAN);
+  }
+
+  /*
+   * Helper method that adds the given rows and columns to the changed region of this layer.
+   */
+  private void markDirty(int row, int col, int rows, int cols) {
+    this.version++;
+    Rectangle region = new Rectangle(col, row, cols, rows);
+    if (Objects.isNull(this.dirty)) {
+      this.dirty = region;
+    } else {
+      this.dirty.add(region);
+    }
+  }
+
+  /**
+   * Returns the raster that stores the colors of this layer.
+   *
+   * @return - the raster of this layer
+   */
+  IRaster getRaster() {
+    return this.raster;
+  }
+
+  /**
+   * Returns a copy of this layer with its own copy of the colors, the same filter and the same
+   * images, such as a snapshot of the layer that is saved in the background. The opaque and
+   * transparent colors of the copy are copied, or counted the first time they are needed when
+   * this layer has not counted them yet.
+   *
+   * @return - the copy of this layer
+   */
+  Layer copy() {
+    Layer copy = new Layer(this.name, this.raster.copy(), this.maxValue, this.color);
+    if (this.uncounted) {
+      copy.uncounted = true;
+    } else {
+      // the copy has the same colors, so it takes the counts instead of reading its raster
+      copy.opaque = Objects.isNull(this.opaque) ? null : this.opaque.clone();
+      copy.clear = Objects.isNull(this.clear) ? null : this.clear.clone();
     }
-    return this;
+    copy.filter = this.filter;
+    copy.images.addAll(this.images);
+    return copy;
   }
 
   /**
@@ -0,0 +1,216 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A class that represents a raster whose colors are still in a payload mapped from a project
+ * file. The payload is only decoded the first time a color is read or changed, so a layer that
+ * is never used does not take up memory for its colors. It is decoded into an empty raster
+ * given up front, such as a raster whose tiles are kept on disk.
+ */
+final class MappedRaster implements IRaster {
+  private final IRaster blank;
+  private final int compression;
+  private ByteBuffer payload;
+  private volatile IRaster raster;
+
+  /**
+   * Creates a raster that decodes the given payload into the given raster when it is first
+   * used.
+   *
+   * @param blank       - the raster the payload is decoded into, which has not been drawn on
+   * @param payload     - the mapped bytes of the layer
+   * @param compression - the compression of the payload
+   * @throws IllegalArgumentException - when the raster or payload is null
+   */
+  MappedRaster(IRaster blank, ByteBuffer payload, int compression)
+          throws IllegalArgumentException {
+    if (Objects.isNull(blank) || Objects.isNull(payload)) {
+      throw new IllegalArgumentException("Invalid Raster input!");
+    }
+    this.blank = blank;
+    this.payload = payload;
+    this.compression = compression;
+  }
+
+  /**
+   * Returns whether the payload of this raster has been decoded.
+   *
+   * @return - true if the colors of this raster are in memory
+   */
+  boolean isLoaded() {
+    return Objects.nonNull(this.raster);
+  }
+
+  /**
+   * Returns the payload this raster was mapped from, as long as it has not been decoded.
+   * A raster that has not been decoded has not changed, so the payload still holds its colors.
+   *
+   * @return - a view of the payload, or null if the payload has been decoded
+   */
+  synchronized ByteBuffer getPayload() {
+    return Objects.isNull(this.payload) ? null : this.payload.duplicate();
+  }
+
+  /**
+   * Returns the compression of the payload this raster was mapped from.
+   *
+   * @return - the compression of the payload
+   */
+  int getCompression() {
+    return this.compression;
+  }
+
+  /**
+   * Returns the height of this raster, without decoding the payload.
+   *
+   * @return - the number of rows
+   */
+  @Override
+  public int getHeight() {
+    return this.blank.getHeight();
+  }
+
+  /**
+   * Returns the width of this raster, without decoding the payload.
+   *
+   * @return - the number of columns
+   */
+  @Override
+  public int getWidth() {
+    return this.blank.getWidth();
+  }
+
+  /**
+   * Returns the packed color at the given row and column, decoding the payload the first time.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public int get(int row, int col) throws IllegalArgumentException {
+    return this.load().get(row, col);
+  }
+
+  /**
+   * Sets the packed color at the given row and column, decoding the payload the first time.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public void set(int row, int col, int argb) throws IllegalArgumentException {
+    this.load().set(row, col, argb);
+  }
+
+  /**
+   * Copies the given row of this raster into the destination array, decoding the payload the
+   * first time.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    this.load().getRow(row, dest);
+  }
+
+  /**
+   * Overwrites the given row of this raster with the source array, decoding the payload the
+   * first time.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    this.load().setRow(row, src);
+  }
+
+  /**
+   * Copies part of the given row of this raster into the same columns of the destination array,
+   * decoding the payload the first time.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException {
+    this.load().getRow(row, col, length, dest);
+  }
+
+  /**
+   * Overwrites part of the given row of this raster with the same columns of the source array,
+   * decoding the payload the first time.
+   *
+   * @param row    - the row to overwrite
+   * @param col    - the first column to overwrite
+   * @param length - the number of columns to overwrite
+   * @param src    - the packed colors, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short OR
+   *                                  when the payload is not valid
+   */
+  @Override
+  public void setRow(int row, int col, int length, int[] src) throws IllegalArgumentException {
+    this.load().setRow(row, col, length, src);
+  }
+
+  /**
+   * Returns a deep copy of this raster. A raster that has not been decoded is copied as another
+   * raster over the same payload, with a copy of the empty raster to decode it into, so neither
+   * has to be decoded to copy it.
+   *
+   * @return - a raster with the same colors as this raster
+   */
+  @Override
+  public IRaster copy() {
+    synchronized (this) {
+      if (Objects.nonNull(this.payload)) {
+        return new MappedRaster(this.blank.copy(), this.payload.duplicate(), this.compression);
+      }
+    }
+    return this.load().copy();
+  }
+
+  /**
+   * Returns the decoded raster, decoding the payload the first time.
+   * The compositor reads layers from several threads, so only one of them decodes.
+   *
+   * @return - the decoded raster
+   * @throws IllegalArgumentException - when the payload is not valid
+   */
+  IRaster load() throws IllegalArgumentException {
+    IRaster loaded = this.raster;
+    if (Objects.isNull(loaded)) {
+      synchronized (this) {
+        loaded = this.raster;
+        if (Objects.isNull(loaded)) {
+          loaded = ProjectFile.decode(this.payload, this.compression, this.blank);
+          // the mapping can be released once it is decoded
+          this.payload = null;
+          this.raster = loaded;
+        }
+      }
+    }
+    return loaded;
+  }
+}
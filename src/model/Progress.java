@@ -0,0 +1,108 @@
+package model;
+
+import java.io.InterruptedIOException;
+import java.util.Objects;
+
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+
+/**
+ * A class that reports the progress of a file that is written in the background to a listener
+ * and stops the writing once the save is cancelled. The progress is counted in units, such as
+ * rows, out of a known total, and is only reported when its whole percentage changes.
+ * It also follows the progress of an ImageIO writer, which it aborts once the save is cancelled.
+ */
+final class Progress implements IIOWriteProgressListener {
+  // the progress of a file that is written in the foreground, which is not reported
+  static final Progress NONE = new Progress(null, null, 1);
+
+  private final String filename;
+  private final SaveListener listener;
+  private final long total;
+  private long done;
+  private int percent;
+
+  /**
+   * Creates the progress of writing the given number of units of the given file.
+   *
+   * @param filename - the path of the file
+   * @param listener - the listener to report to, or null to report nothing
+   * @param total    - the number of units that are written
+   */
+  Progress(String filename, SaveListener listener, long total) {
+    this.filename = filename;
+    this.listener = listener;
+    this.total = Math.max(1, total);
+    this.percent = -1;
+  }
+
+  /**
+   * Counts the given number of units as written.
+   *
+   * @param units - the number of units written since the last call
+   * @throws InterruptedIOException - when the save has been cancelled
+   */
+  void advance(long units) throws InterruptedIOException {
+    if (Objects.isNull(this.listener)) {
+      return;
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Saving " + this.filename + " was cancelled.");
+    }
+    this.done += units;
+    this.report((double) this.done / this.total);
+  }
+
+  /*
+   * Helper method that reports the given fraction when its whole percentage has changed.
+   */
+  private void report(double fraction) {
+    int current = (int) (Math.min(1, fraction) * 100);
+    if (current != this.percent) {
+      this.percent = current;
+      this.listener.progress(this.filename, current / 100.0);
+    }
+  }
+
+  @Override
+  public void imageProgress(ImageWriter source, float percentageDone) {
+    if (Objects.isNull(this.listener)) {
+      return;
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      source.abort();
+    } else {
+      this.report(percentageDone / 100);
+    }
+  }
+
+  @Override
+  public void imageStarted(ImageWriter source, int imageIndex) {
+    // the progress is reported as the rows are written
+  }
+
+  @Override
+  public void imageComplete(ImageWriter source) {
+    // completion is reported once the file is closed
+  }
+
+  @Override
+  public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+    // no thumbnails are written
+  }
+
+  @Override
+  public void thumbnailProgress(ImageWriter source, float percentageDone) {
+    // no thumbnails are written
+  }
+
+  @Override
+  public void thumbnailComplete(ImageWriter source) {
+    // no thumbnails are written
+  }
+
+  @Override
+  public void writeAborted(ImageWriter source) {
+    // the writer reports the abort to the method that started it
+  }
+}
@@ -0,0 +1,514 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A class that reads and writes collage projects in the binary (C2) format.
+ * The file starts with a header of the magic number "C2", the version of the format, the width,
+ * height and max value of the project and the number of layers. A table of contents follows
+ * with the name, filter, offset, length and compression of each layer, bottom layer first,
+ * and then whether the file has a preview and the offset, length and compression of the
+ * preview. The payload of a layer is its stored colors before its filter is applied, in row
+ * order as one byte each of red, green, blue and alpha, either raw or deflated, whichever is
+ * smaller, so each layer can be mapped and decoded on its own. The preview is the flattened
+ * collage in the same encoding.
+ */
+final class ProjectFile {
+  static final int VERSION = 1;
+  static final int RAW = 0;
+  static final int DEFLATE = 1;
+  // the number of bytes compressed or decompressed at a time
+  private static final int BLOCK = 1 << 16;
+
+  /**
+   * A class that represents the entry of one layer in the table of contents.
+   */
+  static final class Entry {
+    final String name;
+    final String filter;
+    long offset;
+    long length;
+    int compression;
+
+    /**
+     * Creates an entry for a layer whose payload has not been written yet.
+     *
+     * @param name   - the name of the layer
+     * @param filter - the option of the filter of the layer
+     */
+    Entry(String name, String filter) {
+      this.name = name;
+      this.filter = filter;
+    }
+  }
+
+  private ProjectFile() {
+  }
+
+  /**
+   * Returns whether the file at the given path starts with the magic number of this format.
+   *
+   * @param filename - the path of the file
+   * @return - true if the file is a binary project file
+   * @throws IOException - when the file could not be read
+   */
+  static boolean isProjectFile(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(2);
+      int count = 0;
+      while (magic.hasRemaining() && count >= 0) {
+        count = channel.read(magic);
+      }
+      return !magic.hasRemaining() && magic.get(0) == 'C' && magic.get(1) == '2';
+    }
+  }
+
+  /**
+   * Writes the given project to the file at the given path.
+   * The stored colors of each layer are written without rendering the filters of the layers.
+   * A layer that is still mapped from a project file and has not been decoded has its payload
+   * copied as it is.
+   *
+   * @param model    - the project to write
+   * @param filename - the path of the file
+   * @param preview  - whether the flattened collage is written as well
+   * @param progress - the progress to count each written row of a payload in
+   * @throws IOException - when the file could not be written or the save was cancelled
+   */
+  static void write(CollageModel model, String filename, boolean preview, Progress progress)
+          throws IOException {
+    List<ILayer> layers = model.getLayers();
+    List<Entry> entries = new ArrayList<Entry>();
+    for (ILayer l : layers) {
+      entries.add(new Entry(l.getName(), l.getFilter().getOption()));
+    }
+    Entry flattened = preview ? new Entry("", "") : null;
+
+    // the layers of a project may be mapped from the file that is replaced, so the project is
+    // written to a new file that is then moved over it
+    Path target = Paths.get(filename).toAbsolutePath();
+    // unlike Files.createTempFile, the file gets the default permissions of a new file
+    Path temp = File.createTempFile(target.getFileName().toString(), ".tmp",
+            target.getParent().toFile()).toPath();
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      // the payloads start after the header, which is rewritten once their offsets are known
+      long offset = header(model, entries, flattened).length;
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        for (int k = 0; k < layers.size(); k++) {
+          offset += writePayload(channel, offset, layers.get(k), entries.get(k), deflater,
+                  progress);
+        }
+        if (preview) {
+          writePayload(channel, offset, model.saveImage(), flattened, deflater, progress);
+        }
+      } finally {
+        deflater.end();
+      }
+      writeFully(channel, 0, ByteBuffer.wrap(header(model, entries, flattened)));
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /*
+   * Helper method that writes the payload of the given colors at the given offset, records it
+   * in the given entry and returns the number of bytes written.
+   */
+  private static long writePayload(FileChannel channel, long offset, IListOfPixel img,
+                                   Entry entry, Deflater deflater, Progress progress)
+          throws IOException {
+    entry.offset = offset;
+    if (img instanceof Layer && ((Layer) img).getRaster() instanceof MappedRaster) {
+      MappedRaster mapped = (MappedRaster) ((Layer) img).getRaster();
+      ByteBuffer payload = mapped.getPayload();
+      if (Objects.nonNull(payload)) {
+        // the layer has not changed since it was read, so its payload is still valid
+        entry.compression = mapped.getCompression();
+        entry.length = writeFully(channel, offset, payload);
+        progress.advance(img.getHeight());
+        return entry.length;
+      }
+    }
+
+    entry.compression = DEFLATE;
+    entry.length = writeDeflated(channel, offset, img, deflater, progress);
+    long raw = 4L * img.getHeight() * img.getWidth();
+    if (entry.length >= raw) {
+      entry.compression = RAW;
+      entry.length = writeRaw(channel, offset, img);
+      channel.truncate(offset + raw);
+    }
+    return entry.length;
+  }
+
+  /**
+   * Reads the project in the file at the given path into the given model.
+   * The model is started with the size of the project and its layers are replaced with the
+   * layers of the file. The payload of a lazy layer is mapped from the file and only decoded
+   * the first time its colors are read or changed. The payloads of the other layers are read
+   * into memory and decoded now, so nothing refers to the file once this returns and the
+   * project can be saved over it on any system. Each layer is decoded into a raster the model
+   * creates for it, so the layers of a project too large for memory keep their tiles on disk.
+   *
+   * @param filename - the path of the file
+   * @param model    - the model to read the project into
+   * @param lazy     - whether the layers are decoded when they are first used instead of now
+   * @param pool     - the pool the layers are decoded on at the same time when they are not
+   *                 lazy, or null to decode them one after another
+   * @return - the model
+   * @throws IOException              - when the file could not be read
+   * @throws IllegalArgumentException - when the file is not a valid project file
+   */
+  static CollageModel read(String filename, CollagePPM model, boolean lazy,
+                           ExecutorService pool) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      if (in.readByte() != 'C' || in.readByte() != '2') {
+        throw new IllegalArgumentException("Invalid project file!");
+      }
+      if (in.readInt() != VERSION) {
+        throw new IllegalArgumentException("Unsupported project file version!");
+      }
+      int width = in.readInt();
+      int height = in.readInt();
+      int maxValue = in.readInt();
+      int count = in.readInt();
+      if (count < 0) {
+        throw new IllegalArgumentException("Invalid project file!");
+      }
+
+      // read the table of contents
+      List<Entry> entries = new ArrayList<Entry>();
+      for (int k = 0; k < count; k++) {
+        Entry entry = new Entry(in.readUTF(), in.readUTF());
+        readEntry(in, entry, channel.size(), height, width);
+        entries.add(entry);
+      }
+
+      model.startModel(height, width, maxValue);
+      // need to get rid of the default background layer for this collage's background
+      model.removeLayer("background");
+      int transparent = Raster.pack(maxValue, maxValue, maxValue, 0);
+      List<Callable<IRaster>> tasks = new ArrayList<Callable<IRaster>>();
+      // the layers keep the order of the table of contents
+      for (Entry entry : entries) {
+        // the model decides whether the layer fits in memory from the layers added before it
+        IRaster blank = model.createRaster(transparent);
+        IRaster raster = blank;
+        if (lazy) {
+          // the mapping stays valid after the channel is closed
+          ByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset,
+                  entry.length);
+          raster = new MappedRaster(blank, payload, entry.compression);
+        } else {
+          tasks.add(() -> decode(readPayload(channel, entry), entry.compression, blank));
+        }
+        ILayer layer = Layer.mapped(entry.name, raster, maxValue);
+        layer.setFilter(Filter.findByValue(entry.filter));
+        model.addGivenLayer(layer);
+      }
+      decodeAll(tasks, pool);
+      return model;
+    }
+  }
+
+  /**
+   * Reads the flattened collage embedded in the project file at the given path, without
+   * reading any of its layers.
+   *
+   * @param filename - the path of the file
+   * @return - the flattened collage, or null if the file has no preview
+   * @throws IOException              - when the file could not be read
+   * @throws IllegalArgumentException - when the file is not a valid project file
+   */
+  static IImage readPreview(String filename) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      if (in.readByte() != 'C' || in.readByte() != '2') {
+        throw new IllegalArgumentException("Invalid project file!");
+      }
+      if (in.readInt() != VERSION) {
+        throw new IllegalArgumentException("Unsupported project file version!");
+      }
+      int width = in.readInt();
+      int height = in.readInt();
+      int maxValue = in.readInt();
+      int count = in.readInt();
+      if (count < 0) {
+        throw new IllegalArgumentException("Invalid project file!");
+      }
+
+      // skip the table of contents
+      for (int k = 0; k < count; k++) {
+        in.readUTF();
+        in.readUTF();
+        in.readLong();
+        in.readLong();
+        in.readByte();
+      }
+      if (in.readByte() == 0) {
+        return null;
+      }
+
+      Entry preview = new Entry("", "");
+      readEntry(in, preview, channel.size(), height, width);
+      ByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, preview.offset,
+              preview.length);
+      Raster raster = new Raster(height, width);
+      decode(payload, preview.compression, raster);
+      return new Image(raster, maxValue, new Posn(0, 0));
+    }
+  }
+
+  /*
+   * Helper method that reads the offset, length and compression of a payload into the given
+   * entry and checks that they are valid for a file of the given size.
+   */
+  private static void readEntry(DataInputStream in, Entry entry, long size, int height,
+                                int width) throws IOException, IllegalArgumentException {
+    entry.offset = in.readLong();
+    entry.length = in.readLong();
+    entry.compression = in.readByte();
+    if (entry.offset < 0 || entry.length < 0 || entry.offset + entry.length > size
+            || (entry.compression != RAW && entry.compression != DEFLATE)
+            || (entry.compression == RAW && entry.length != 4L * height * width)) {
+      throw new IllegalArgumentException("Invalid project file!");
+    }
+  }
+
+  /**
+   * Runs the given tasks that each read and decode the payload of a layer, at the same time on
+   * the given pool.
+   *
+   * @param tasks - the tasks that decode each layer into its raster
+   * @param pool  - the pool to decode on, or null to decode on the calling thread
+   * @throws IOException              - when a payload could not be read
+   * @throws IllegalArgumentException - when a payload is not valid
+   */
+  static void decodeAll(List<Callable<IRaster>> tasks, ExecutorService pool)
+          throws IOException, IllegalArgumentException {
+    try {
+      if (Objects.isNull(pool) || tasks.size() < 2) {
+        for (Callable<IRaster> task : tasks) {
+          task.call();
+        }
+        return;
+      }
+      for (Future<IRaster> decoded : pool.invokeAll(tasks)) {
+        decoded.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof IllegalArgumentException) {
+        throw (IllegalArgumentException) e.getCause();
+      }
+      throw new IllegalArgumentException("Invalid project file!");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalArgumentException("Project file could not be read.");
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Invalid project file!");
+    }
+  }
+
+  /*
+   * Helper method that reads the payload of the given entry into memory.
+   */
+  private static ByteBuffer readPayload(FileChannel channel, Entry entry) throws IOException {
+    if (entry.length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid project file!");
+    }
+    ByteBuffer payload = ByteBuffer.allocate((int) entry.length);
+    while (payload.hasRemaining()) {
+      if (channel.read(payload, entry.offset + payload.position()) < 0) {
+        throw new IllegalArgumentException("Invalid project file!");
+      }
+    }
+    payload.flip();
+    return payload;
+  }
+
+  /**
+   * Decodes the colors of a layer payload into the given raster.
+   *
+   * @param payload     - the bytes of the payload
+   * @param compression - the compression of the payload
+   * @param raster      - the raster to write the colors into
+   * @return - the raster
+   * @throws IllegalArgumentException - when the payload is not valid
+   */
+  static IRaster decode(ByteBuffer payload, int compression, IRaster raster)
+          throws IllegalArgumentException {
+    int width = raster.getWidth();
+    byte[] bytes = new byte[4 * width];
+    int[] row = new int[width];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(payload);
+      for (int i = 0; i < raster.getHeight(); i++) {
+        if (compression == RAW) {
+          payload.get(bytes);
+        } else {
+          inflate(inflater, bytes);
+        }
+        for (int j = 0, k = 0; j < width; j++, k += 4) {
+          row[j] = Raster.pack(bytes[k] & 0xFF, bytes[k + 1] & 0xFF, bytes[k + 2] & 0xFF,
+                  bytes[k + 3] & 0xFF);
+        }
+        raster.setRow(i, row);
+      }
+    } finally {
+      inflater.end();
+    }
+    return raster;
+  }
+
+  /*
+   * Helper method that creates the header and table of contents of the file.
+   */
+  private static byte[] header(CollageModel model, List<Entry> entries, Entry preview)
+          throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte('C');
+    out.writeByte('2');
+    out.writeInt(VERSION);
+    out.writeInt(model.getWidth());
+    out.writeInt(model.getHeight());
+    out.writeInt(model.getMax());
+    out.writeInt(entries.size());
+    for (Entry entry : entries) {
+      out.writeUTF(entry.name);
+      out.writeUTF(entry.filter);
+      out.writeLong(entry.offset);
+      out.writeLong(entry.length);
+      out.writeByte(entry.compression);
+    }
+    out.writeByte(Objects.nonNull(preview) ? 1 : 0);
+    if (Objects.nonNull(preview)) {
+      out.writeLong(preview.offset);
+      out.writeLong(preview.length);
+      out.writeByte(preview.compression);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /*
+   * Helper method that writes the deflated colors of the image at the given offset and returns
+   * the number of bytes written.
+   */
+  private static long writeDeflated(FileChannel channel, long offset, IListOfPixel layer,
+                                    Deflater deflater, Progress progress) throws IOException {
+    byte[] bytes = new byte[4 * layer.getWidth()];
+    int[] row = new int[layer.getWidth()];
+    byte[] block = new byte[BLOCK];
+    long position = offset;
+
+    deflater.reset();
+    for (int i = 0; i < layer.getHeight(); i++) {
+      layer.getRow(i, row);
+      encode(row, bytes);
+      deflater.setInput(bytes);
+      while (!deflater.needsInput()) {
+        int count = deflater.deflate(block);
+        position += writeFully(channel, position, ByteBuffer.wrap(block, 0, count));
+      }
+      progress.advance(1);
+    }
+    deflater.finish();
+    while (!deflater.finished()) {
+      int count = deflater.deflate(block);
+      position += writeFully(channel, position, ByteBuffer.wrap(block, 0, count));
+    }
+    return position - offset;
+  }
+
+  /*
+   * Helper method that writes the raw colors of the image at the given offset and returns the
+   * number of bytes written.
+   */
+  private static long writeRaw(FileChannel channel, long offset, IListOfPixel layer)
+          throws IOException {
+    byte[] bytes = new byte[4 * layer.getWidth()];
+    int[] row = new int[layer.getWidth()];
+    long position = offset;
+    for (int i = 0; i < layer.getHeight(); i++) {
+      layer.getRow(i, row);
+      encode(row, bytes);
+      position += writeFully(channel, position, ByteBuffer.wrap(bytes));
+    }
+    return position - offset;
+  }
+
+  /*
+   * Helper method that encodes a row of packed colors as red, green, blue and alpha bytes.
+   */
+  private static void encode(int[] row, byte[] bytes) {
+    for (int j = 0, k = 0; j < row.length; j++, k += 4) {
+      bytes[k] = (byte) Raster.red(row[j]);
+      bytes[k + 1] = (byte) Raster.green(row[j]);
+      bytes[k + 2] = (byte) Raster.blue(row[j]);
+      bytes[k + 3] = (byte) Raster.alpha(row[j]);
+    }
+  }
+
+  /*
+   * Helper method that fills the given array with inflated bytes.
+   */
+  private static void inflate(Inflater inflater, byte[] bytes) throws IllegalArgumentException {
+    try {
+      for (int done = 0; done < bytes.length; ) {
+        int count = inflater.inflate(bytes, done, bytes.length - done);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()
+                || inflater.finished())) {
+          throw new IllegalArgumentException("Invalid project file!");
+        }
+        done += count;
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Invalid project file!");
+    }
+  }
+
+  /*
+   * Helper method that writes every byte of the buffer at the given position and returns the
+   * number of bytes written.
+   */
+  private static int writeFully(FileChannel channel, long position, ByteBuffer buffer)
+          throws IOException {
+    int length = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    return length;
+  }
+}
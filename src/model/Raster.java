@@ -0,0 +1,284 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A class that represents a rectangular grid of packed ARGB colors.
+ * Each color is stored as one int in row-major order with 8 bits per channel:
+ * alpha in the highest byte, then red, green and blue.
+ */
+public final class Raster implements IRaster {
+  private final int height;
+  private final int width;
+  private final int[] data;
+
+  /**
+   * Creates a raster with the given height and width where every color is zero.
+   *
+   * @param height - the height of the raster (rows)
+   * @param width  - the width of the raster (columns)
+   * @throws IllegalArgumentException - when the dimensions are less than or equal to zero
+   */
+  public Raster(int height, int width) throws IllegalArgumentException {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Invalid Raster dimension!");
+    }
+    this.height = height;
+    this.width = width;
+    this.data = new int[height * width];
+  }
+
+  /**
+   * Creates a raster that wraps the given row-major array of packed colors.
+   *
+   * @param height - the height of the raster (rows)
+   * @param width  - the width of the raster (columns)
+   * @param data   - the packed colors, at least height * width long
+   * @throws IllegalArgumentException - when the dimensions are less than or equal to zero OR
+   *                                  when the array is null or too short
+   */
+  public Raster(int height, int width, int[] data) throws IllegalArgumentException {
+    if (height <= 0 || width <= 0 || Objects.isNull(data)
+            || data.length < height * width) {
+      throw new IllegalArgumentException("Invalid Raster dimension!");
+    }
+    this.height = height;
+    this.width = width;
+    this.data = data;
+  }
+
+  /**
+   * Returns the height of this raster.
+   *
+   * @return - the number of rows
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of this raster.
+   *
+   * @return - the number of columns
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the packed color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  public int get(int row, int col) throws IllegalArgumentException {
+    return this.data[this.index(row, col)];
+  }
+
+  /**
+   * Sets the packed color at the given row and column.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  public void set(int row, int col, int argb) throws IllegalArgumentException {
+    this.data[this.index(row, col)] = argb;
+  }
+
+  /**
+   * Copies the given row of this raster into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    if (Objects.isNull(dest) || dest.length < this.width) {
+      throw new IllegalArgumentException("Invalid row buffer!");
+    }
+    System.arraycopy(this.data, this.index(row, 0), dest, 0, this.width);
+  }
+
+  /**
+   * Overwrites the given row of this raster with the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    if (Objects.isNull(src) || src.length < this.width) {
+      throw new IllegalArgumentException("Invalid row buffer!");
+    }
+    System.arraycopy(src, 0, this.data, this.index(row, 0), this.width);
+  }
+
+  /**
+   * Copies part of the given row of this raster into the same columns of the destination array.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException {
+    this.checkSpan(col, length, dest);
+    System.arraycopy(this.data, this.index(row, 0) + col, dest, col, length);
+  }
+
+  /**
+   * Overwrites part of the given row of this raster with the same columns of the source array.
+   *
+   * @param row    - the row to overwrite
+   * @param col    - the first column to overwrite
+   * @param length - the number of columns to overwrite
+   * @param src    - the packed colors, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void setRow(int row, int col, int length, int[] src) throws IllegalArgumentException {
+    this.checkSpan(col, length, src);
+    System.arraycopy(src, col, this.data, this.index(row, 0) + col, length);
+  }
+
+  /**
+   * Sets every color of this raster to the given packed color.
+   *
+   * @param argb - the packed ARGB color
+   */
+  public void fill(int argb) {
+    Arrays.fill(this.data, 0, this.height * this.width, argb);
+  }
+
+  /**
+   * Returns a deep copy of this raster.
+   *
+   * @return - a raster with the same colors as this raster
+   */
+  public Raster copy() {
+    return new Raster(this.height, this.width,
+            Arrays.copyOf(this.data, this.height * this.width));
+  }
+
+  /**
+   * Returns the backing row-major array of this raster.
+   * Changes to the array are visible in this raster.
+   *
+   * @return - the packed colors of this raster
+   */
+  public int[] getData() {
+    return this.data;
+  }
+
+  /**
+   * Packs the given channels into one ARGB color.
+   * Channels outside of 0 to 255 are clamped.
+   *
+   * @param r - the red channel
+   * @param g - the green channel
+   * @param b - the blue channel
+   * @param a - the alpha channel
+   * @return - the packed ARGB color
+   */
+  public static int pack(int r, int g, int b, int a) {
+    return (clamp(a) << 24) | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+  }
+
+  /**
+   * Packs the given rgba array into one ARGB color.
+   *
+   * @param rgba - the rgba array
+   * @return - the packed ARGB color
+   */
+  public static int pack(int[] rgba) {
+    return pack(rgba[0], rgba[1], rgba[2], rgba[3]);
+  }
+
+  /**
+   * Unpacks the given ARGB color into an rgba array.
+   *
+   * @param argb - the packed ARGB color
+   * @return - the rgba array
+   */
+  public static int[] unpack(int argb) {
+    return new int[]{red(argb), green(argb), blue(argb), alpha(argb)};
+  }
+
+  /**
+   * Returns the red channel of the given packed color.
+   *
+   * @param argb - the packed ARGB color
+   * @return - the red channel
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the green channel of the given packed color.
+   *
+   * @param argb - the packed ARGB color
+   * @return - the green channel
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the blue channel of the given packed color.
+   *
+   * @param argb - the packed ARGB color
+   * @return - the blue channel
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Returns the alpha channel of the given packed color.
+   *
+   * @param argb - the packed ARGB color
+   * @return - the alpha channel
+   */
+  public static int alpha(int argb) {
+    return (argb >>> 24);
+  }
+
+  /*
+   * Helper method that returns the index of the given position in the backing array.
+   */
+  private int index(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+    return row * this.width + col;
+  }
+
+  /*
+   * Helper method that checks a span of columns and the array it is copied to or from.
+   */
+  private void checkSpan(int col, int length, int[] buffer) throws IllegalArgumentException {
+    if (col < 0 || length < 0 || col + length > this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+    if (Objects.isNull(buffer) || buffer.length < col + length) {
+      throw new IllegalArgumentException("Invalid row buffer!");
+    }
+  }
+
+  /*
+   * Helper method that clamps a channel to the range of one byte.
+   */
+  private static int clamp(int channel) {
+    return Math.max(0, Math.min(channel, 255));
+  }
+}
@@ -0,0 +1,40 @@
+package model;
+
+/**
+ * An interface that represents the callbacks of an image or project file that is saved in the
+ * background. The callbacks are made on the thread that writes the file, which only reports how
+ * the save ended once it has stopped writing the file, even when the save is cancelled from
+ * another thread. A user interface has to move the callbacks to its own thread.
+ */
+public interface SaveListener {
+
+  /**
+   * Reports how much of the file has been written.
+   *
+   * @param filename - the path of the file
+   * @param fraction - the part of the file that has been written, from 0 to 1
+   */
+  void progress(String filename, double fraction);
+
+  /**
+   * Reports that the whole file has been written.
+   *
+   * @param filename - the path of the file
+   */
+  void saved(String filename);
+
+  /**
+   * Reports that the file could not be written.
+   *
+   * @param filename - the path of the file
+   * @param e        - the reason the file could not be written
+   */
+  void failed(String filename, Exception e);
+
+  /**
+   * Reports that the save was cancelled before the file was written.
+   *
+   * @param filename - the path of the file
+   */
+  void cancelled(String filename);
+}
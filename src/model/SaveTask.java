@@ -0,0 +1,87 @@
+package model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A class that represents a file that is saved in the background. The listener of the save is
+ * told once the file is written, could not be written or the save is cancelled, exactly once.
+ * It is told on the thread that saves the file once that thread has stopped writing it, even
+ * when the save is cancelled from another thread, and waiting for the save, cancelled or not,
+ * only returns once the listener has been told. A cancelled save that has not started is told
+ * when the thread reaches it.
+ */
+final class SaveTask extends FutureTask<Void> {
+  private final String filename;
+  private final SaveListener listener;
+  private final CountDownLatch told;
+
+  /**
+   * Creates the task that saves the given file.
+   *
+   * @param filename - the path of the file
+   * @param listener - the listener to tell when the save is done
+   * @param save     - the work that writes the file
+   */
+  SaveTask(String filename, SaveListener listener, Callable<Void> save) {
+    super(save);
+    this.filename = filename;
+    this.listener = listener;
+    this.told = new CountDownLatch(1);
+  }
+
+  /**
+   * Saves the file, unless the save was cancelled before it started, and then tells the
+   * listener how the save ended.
+   */
+  @Override
+  public void run() {
+    try {
+      super.run();
+    } finally {
+      this.tell();
+    }
+  }
+
+  /**
+   * Waits until the file is saved and the listener has been told, which for a cancelled save
+   * is once the thread that saves the file has stopped writing it.
+   *
+   * @return - null once the file is saved
+   * @throws InterruptedException - when the waiting thread is interrupted
+   * @throws ExecutionException   - when the file could not be written
+   */
+  @Override
+  public Void get() throws InterruptedException, ExecutionException {
+    try {
+      return super.get();
+    } finally {
+      this.told.await();
+    }
+  }
+
+  /*
+   * Helper method that tells the listener how the save ended.
+   */
+  private void tell() {
+    try {
+      if (this.isCancelled()) {
+        this.listener.cancelled(this.filename);
+        return;
+      }
+      super.get();
+      this.listener.saved(this.filename);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      this.listener.failed(this.filename,
+              cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+    } catch (InterruptedException e) {
+      // the task is done, so getting its result does not wait
+      Thread.currentThread().interrupt();
+    } finally {
+      this.told.countDown();
+    }
+  }
+}
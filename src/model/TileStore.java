@@ -0,0 +1,558 @@
+package model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that stores the square tiles of disk-backed rasters, keeping a bounded working set of
+ * tiles in memory. Once the working set is full, a tile that was not used recently is evicted
+ * with the clock algorithm, and a tile that changed is written to a scratch file first, from
+ * which it is read back the next time it is used. A copy of a raster shares the tiles its source
+ * has written to the file until either of them changes a tile, so copying a raster only writes
+ * the tiles that are in memory. A tile that was never drawn on is not stored at all and reads as
+ * the color of its raster.
+ * The tiles in memory are read without locking the store, and a tile is read back from the file
+ * under a lock of its own, so threads that composite bands of the same layers only wait for each
+ * other to add or evict tiles. Changing a tile locks the store. Like the colors of a raster, a
+ * tile is not guarded against being read while another thread changes it.
+ * The scratch file is created the first time a tile is evicted, and deleted once the store is
+ * no longer used. An interrupt of a thread that reads or writes a tile does not lose the file:
+ * the file is opened again and the tile read or written again.
+ */
+final class TileStore {
+  // the number of rows and columns of a tile
+  static final int TILE = 64;
+  // the number of bytes of a tile
+  private static final int TILE_BYTES = TILE * TILE * Integer.BYTES;
+  // releases the tiles of rasters and the scratch files of stores that are no longer used
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final int capacity;
+  private final Map<Integer, Tiles> rasters;
+  private final Map<Long, Tile> resident;
+  // the keys of the tiles in memory, in the order the clock visits them to find one to evict
+  private final ArrayDeque<Long> clock;
+  private final Map<Long, Integer> shared;
+  private final ArrayDeque<Long> free;
+  private final Scratch scratch;
+  private final ByteBuffer buffer;
+  private final AtomicLong reads;
+  private int next;
+  private long end;
+  private long writes;
+
+  /**
+   * Creates a store that keeps at most the given number of bytes of tiles in memory, and at
+   * least one tile.
+   *
+   * @param budget - the number of bytes the tiles in memory may use
+   * @throws IllegalArgumentException - when the budget is negative
+   */
+  TileStore(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Invalid tile budget!");
+    }
+    this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget / TILE_BYTES));
+    this.rasters = new ConcurrentHashMap<Integer, Tiles>();
+    this.resident = new ConcurrentHashMap<Long, Tile>();
+    this.clock = new ArrayDeque<Long>();
+    this.shared = new HashMap<Long, Integer>();
+    this.free = new ArrayDeque<Long>();
+    this.scratch = new Scratch();
+    this.buffer = ByteBuffer.allocateDirect(TILE_BYTES).order(ByteOrder.nativeOrder());
+    this.reads = new AtomicLong();
+    CLEANER.register(this, this.scratch);
+  }
+
+  /**
+   * Returns the number of bytes of one tile, so a budget can be given in tiles.
+   *
+   * @param tiles - the number of tiles
+   * @return - the number of bytes the tiles use
+   */
+  static long tileSize(int tiles) {
+    return (long) tiles * TILE_BYTES;
+  }
+
+  /**
+   * Returns the most tiles this store keeps in memory.
+   *
+   * @return - the number of tiles in the working set
+   */
+  int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Returns the number of tiles in memory.
+   *
+   * @return - the number of resident tiles
+   */
+  int getResident() {
+    return this.resident.size();
+  }
+
+  /**
+   * Returns the number of tiles read from the scratch file so far.
+   *
+   * @return - the number of tile reads
+   */
+  long getReads() {
+    return this.reads.get();
+  }
+
+  /**
+   * Returns the number of tiles written to the scratch file so far.
+   *
+   * @return - the number of tile writes
+   */
+  synchronized long getWrites() {
+    return this.writes;
+  }
+
+  /**
+   * Adds a raster of the given number of tiles that have not been drawn on, whose tiles are
+   * released once the given owner is no longer used.
+   *
+   * @param owner - the raster the tiles belong to
+   * @param tiles - the number of tiles of the raster
+   * @param color - the color of every tile that has not been drawn on
+   * @return - the id of the raster in this store
+   */
+  synchronized int register(Object owner, int tiles, int color) {
+    return this.add(owner, new Tiles(color, new boolean[tiles], new long[tiles]));
+  }
+
+  /**
+   * Adds a copy of the given raster whose tiles are released once the given owner is no longer
+   * used. The tiles of the raster that changed in memory are written to the scratch file, and
+   * both rasters share the tiles in the file until one of them changes a tile.
+   *
+   * @param owner  - the raster the copied tiles belong to
+   * @param raster - the id of the raster to copy
+   * @return - the id of the copy in this store
+   */
+  synchronized int copy(Object owner, int raster) {
+    Tiles source = this.rasters.get(raster);
+    for (Map.Entry<Long, Tile> entry : this.resident.entrySet()) {
+      if (rasterOf(entry.getKey()) == raster && entry.getValue().dirty) {
+        this.writeTile(source, tileOf(entry.getKey()), entry.getValue());
+      }
+    }
+    long[] slots = source.slots.clone();
+    for (long slot : slots) {
+      if (slot != 0) {
+        this.shared.merge(slot, 2, (count, two) -> count + 1);
+      }
+    }
+    return this.add(owner, new Tiles(source.color, source.created.clone(), slots));
+  }
+
+  /**
+   * Returns whether the given tile of a raster has been drawn on.
+   *
+   * @param raster - the id of the raster
+   * @param tile   - the index of the tile
+   * @return - whether the tile is stored
+   */
+  boolean isCreated(int raster, int tile) {
+    return this.rasters.get(raster).created[tile];
+  }
+
+  /**
+   * Returns the color at the given index of a tile of a raster.
+   *
+   * @param raster - the id of the raster
+   * @param tile   - the index of the tile
+   * @param index  - the index of the color in the tile, row by row
+   * @return - the packed ARGB color
+   */
+  int get(int raster, int tile, int index) {
+    Tile found = this.find(raster, tile);
+    if (Objects.isNull(found)) {
+      return this.rasters.get(raster).color;
+    }
+    return found.data[index];
+  }
+
+  /**
+   * Sets the color at the given index of a tile of a raster, creating the tile.
+   *
+   * @param raster - the id of the raster
+   * @param tile   - the index of the tile
+   * @param index  - the index of the color in the tile, row by row
+   * @param argb   - the packed ARGB color
+   */
+  synchronized void set(int raster, int tile, int index, int argb) {
+    Tile loaded = this.read(this.load(raster, tile));
+    loaded.data[index] = argb;
+    loaded.dirty = true;
+  }
+
+  /**
+   * Copies colors from a tile of a raster into the given array. The colors of a tile that has
+   * not been drawn on are the color of the raster.
+   *
+   * @param raster - the id of the raster
+   * @param tile   - the index of the tile
+   * @param index  - the index of the first color in the tile, row by row
+   * @param dest   - the array to copy into
+   * @param from   - the first index of the array to copy into
+   * @param length - the number of colors to copy
+   */
+  void getColors(int raster, int tile, int index, int[] dest, int from, int length) {
+    Tile found = this.find(raster, tile);
+    if (Objects.isNull(found)) {
+      Arrays.fill(dest, from, from + length, this.rasters.get(raster).color);
+      return;
+    }
+    System.arraycopy(found.data, index, dest, from, length);
+  }
+
+  /**
+   * Copies colors from the given array into a tile of a raster, creating the tile.
+   *
+   * @param raster - the id of the raster
+   * @param tile   - the index of the tile
+   * @param index  - the index of the first color in the tile, row by row
+   * @param src    - the array to copy from
+   * @param from   - the first index of the array to copy from
+   * @param length - the number of colors to copy
+   */
+  synchronized void setColors(int raster, int tile, int index, int[] src, int from,
+                              int length) {
+    Tile loaded = this.read(this.load(raster, tile));
+    System.arraycopy(src, from, loaded.data, index, length);
+    loaded.dirty = true;
+  }
+
+  /*
+   * Helper method that adds the tiles of a raster and releases them once its owner is no longer
+   * used. The cleaner only holds this store and the id, so it does not keep the owner alive.
+   */
+  private int add(Object owner, Tiles tiles) {
+    int id = this.next++;
+    this.rasters.put(id, tiles);
+    CLEANER.register(owner, () -> this.release(id));
+    return id;
+  }
+
+  /*
+   * Helper method that forgets the tiles of a raster that is no longer used, freeing the parts
+   * of the scratch file that no other raster shares.
+   */
+  private synchronized void release(int raster) {
+    Tiles tiles = this.rasters.remove(raster);
+    if (Objects.isNull(tiles)) {
+      return;
+    }
+    // the keys left on the clock are skipped once the clock reaches them
+    this.resident.keySet().removeIf(key -> rasterOf(key) == raster);
+    for (long slot : tiles.slots) {
+      if (slot != 0) {
+        this.unshare(slot);
+      }
+    }
+  }
+
+  /*
+   * Helper method that returns a tile of a raster that has been drawn on, with its colors in
+   * memory, or null when the tile has not been drawn on. A tile in memory is found without
+   * locking the store.
+   */
+  private Tile find(int raster, int tile) {
+    Tile found = this.resident.get(keyOf(raster, tile));
+    if (Objects.nonNull(found)) {
+      found.used = true;
+    } else if (this.rasters.get(raster).created[tile]) {
+      found = this.load(raster, tile);
+    } else {
+      return null;
+    }
+    return this.read(found);
+  }
+
+  /*
+   * Helper method that returns a tile of a raster in memory, creating it from the color of the
+   * raster when it has not been drawn on, and evicts tiles beyond the working set. A tile that
+   * is in the scratch file is returned before its colors are read, so they are read once the
+   * store is unlocked.
+   */
+  private synchronized Tile load(int raster, int tile) {
+    long key = keyOf(raster, tile);
+    Tile loaded = this.resident.get(key);
+    if (Objects.nonNull(loaded)) {
+      loaded.used = true;
+      return loaded;
+    }
+
+    Tiles tiles = this.rasters.get(raster);
+    if (tiles.created[tile] && tiles.slots[tile] != 0) {
+      loaded = new Tile(tiles.slots[tile]);
+    } else {
+      loaded = new Tile(0);
+      Arrays.fill(loaded.data, tiles.color);
+      tiles.created[tile] = true;
+      loaded.dirty = true;
+      loaded.ready = true;
+    }
+    this.resident.put(key, loaded);
+    this.clock.add(key);
+    this.evict();
+    return loaded;
+  }
+
+  /*
+   * Helper method that evicts tiles until the working set is not over its capacity, writing the
+   * ones that changed to the scratch file. The clock gives a tile that was used since it was
+   * last visited another chance, so a loaded tile is never evicted before the tiles that were
+   * visited once already, and a tile is evicted anyway once every tile has had its chance.
+   */
+  private void evict() {
+    int chances = this.clock.size();
+    while (this.resident.size() > this.capacity) {
+      long key = this.clock.remove();
+      Tile eldest = this.resident.get(key);
+      if (Objects.isNull(eldest)) {
+        // the tile belonged to a raster that was released
+        continue;
+      }
+      if (eldest.used && chances > 0) {
+        eldest.used = false;
+        chances--;
+        this.clock.add(key);
+        continue;
+      }
+      if (eldest.dirty) {
+        this.writeTile(this.rasters.get(rasterOf(key)), tileOf(key), eldest);
+      }
+      this.resident.remove(key);
+    }
+  }
+
+  /*
+   * Helper method that reads the colors of a tile from the scratch file the first time it is
+   * used after being loaded. Only the tile is locked while it is read, so other tiles can be
+   * used and read at the same time.
+   */
+  private Tile read(Tile loaded) {
+    if (!loaded.ready) {
+      synchronized (loaded) {
+        if (!loaded.ready) {
+          this.readTile(loaded.slot, loaded.data);
+          loaded.ready = true;
+        }
+      }
+    }
+    return loaded;
+  }
+
+  /*
+   * Helper method that writes a changed tile to its part of the scratch file, moving it to a
+   * part of its own when the part is shared with a copy.
+   */
+  private void writeTile(Tiles tiles, int tile, Tile written) {
+    long slot = tiles.slots[tile];
+    if (slot == 0 || this.shared.containsKey(slot)) {
+      if (slot != 0) {
+        this.unshare(slot);
+      }
+      slot = this.free.isEmpty() ? this.allocate() : this.free.pop();
+      tiles.slots[tile] = slot;
+    }
+    this.buffer.clear();
+    this.buffer.asIntBuffer().put(written.data);
+    try {
+      this.scratch.transfer(this.buffer, slot - 1, true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Tile could not be written to the scratch file!", e);
+    }
+    written.dirty = false;
+    this.writes++;
+  }
+
+  /*
+   * Helper method that reads the tile at the given part of the scratch file.
+   */
+  private void readTile(long slot, int[] data) {
+    ByteBuffer bytes = ByteBuffer.allocate(TILE_BYTES).order(ByteOrder.nativeOrder());
+    try {
+      this.scratch.transfer(bytes, slot - 1, false);
+    } catch (IOException e) {
+      throw new IllegalStateException("Tile could not be read from the scratch file!", e);
+    }
+    bytes.flip();
+    bytes.asIntBuffer().get(data);
+    this.reads.incrementAndGet();
+  }
+
+  /*
+   * Helper method that returns a new part at the end of the scratch file. A part is stored as
+   * its position plus one, so zero means a tile is not in the file.
+   */
+  private long allocate() {
+    long slot = this.end + 1;
+    this.end += TILE_BYTES;
+    return slot;
+  }
+
+  /*
+   * Helper method that drops one raster from the rasters sharing a part of the scratch file,
+   * and frees the part once no raster uses it.
+   */
+  private void unshare(long slot) {
+    Integer count = this.shared.get(slot);
+    if (Objects.isNull(count)) {
+      this.free.push(slot);
+    } else if (count == 2) {
+      this.shared.remove(slot);
+    } else {
+      this.shared.put(slot, count - 1);
+    }
+  }
+
+  /*
+   * Helper method that combines the id of a raster and the index of one of its tiles.
+   */
+  private static long keyOf(int raster, int tile) {
+    return ((long) raster << 32) | (tile & 0xffffffffL);
+  }
+
+  /*
+   * Helper method that returns the id of the raster of a key.
+   */
+  private static int rasterOf(long key) {
+    return (int) (key >>> 32);
+  }
+
+  /*
+   * Helper method that returns the index of the tile of a key.
+   */
+  private static int tileOf(long key) {
+    return (int) key;
+  }
+
+  /**
+   * The tiles of one raster: which of them were drawn on and where they are in the file.
+   */
+  private static final class Tiles {
+    private final int color;
+    private final boolean[] created;
+    // the position of each tile in the scratch file plus one, or zero when it is not there
+    private final long[] slots;
+
+    Tiles(int color, boolean[] created, long[] slots) {
+      this.color = color;
+      this.created = created;
+      this.slots = slots;
+    }
+  }
+
+  /**
+   * A tile in memory, whether its colors have been read from the file yet, whether it changed
+   * since it was last written to the file, and whether it was used since the clock last
+   * visited it.
+   */
+  private static final class Tile {
+    private final int[] data;
+    // the part of the scratch file the colors are read from, or zero when they are not there
+    private final long slot;
+    private volatile boolean ready;
+    private boolean dirty;
+    // set without locking the store, since a lost mark only gives the tile one chance less
+    private boolean used;
+
+    Tile(long slot) {
+      this.data = new int[TILE * TILE];
+      this.slot = slot;
+      this.used = true;
+    }
+  }
+
+  /**
+   * The scratch file of a store, which is closed and deleted once the store is no longer used.
+   * The file is kept when an interrupt closes its channel, and opened again.
+   */
+  private static final class Scratch implements Runnable {
+    private Path path;
+    private FileChannel channel;
+    private boolean deleted;
+
+    /*
+     * Helper method that reads or writes the rest of the given buffer at the given position of
+     * the file. An interrupt of this or another thread closes the channel while it is in use,
+     * so the channel is opened again and the rest is read or written again, and the interrupt
+     * of this thread is kept for the code that called it.
+     */
+    private void transfer(ByteBuffer buffer, long position, boolean write) throws IOException {
+      boolean interrupted = Thread.interrupted();
+      try {
+        while (buffer.hasRemaining()) {
+          FileChannel open = this.open();
+          try {
+            int count = write ? open.write(buffer, position + buffer.position())
+                    : open.read(buffer, position + buffer.position());
+            if (count < 0) {
+              throw new EOFException("The scratch file ended early.");
+            }
+          } catch (ClosedChannelException e) {
+            interrupted |= Thread.interrupted();
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /*
+     * Helper method that returns the open channel of the file, creating the file the first time
+     * and opening it again when it was closed by an interrupt.
+     */
+    private synchronized FileChannel open() throws IOException {
+      if (this.deleted) {
+        throw new IOException("The scratch file was deleted.");
+      }
+      if (Objects.isNull(this.path)) {
+        this.path = Files.createTempFile("collage", ".tiles");
+        this.path.toFile().deleteOnExit();
+      }
+      if (Objects.isNull(this.channel) || !this.channel.isOpen()) {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+      }
+      return this.channel;
+    }
+
+    @Override
+    public synchronized void run() {
+      this.deleted = true;
+      try {
+        if (Objects.nonNull(this.channel)) {
+          this.channel.close();
+        }
+        if (Objects.nonNull(this.path)) {
+          Files.deleteIfExists(this.path);
+        }
+      } catch (IOException e) {
+        // the file is deleted when the program ends
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A class that represents a grid of packed ARGB colors that is stored in square tiles.
+ * A tile is only created the first time a color in it is set to something other than the color
+ * of this raster, so a raster that is mostly one color, such as a mostly transparent layer,
+ * only uses memory for the tiles that were drawn on.
+ * A copy of a raster shares its tiles until either raster changes a tile, which then gets its
+ * own copy of that tile, so copying a raster does not copy its colors.
+ */
+public final class TiledRaster implements IRaster {
+  // the number of rows and columns of a tile
+  private static final int TILE = 64;
+
+  private final int height;
+  private final int width;
+  private final int color;
+  private final int tilesAcross;
+  private final int[][] tiles;
+  // whether each tile belongs to this raster alone, so it can be changed without copying it
+  private final boolean[] owned;
+
+  /**
+   * Creates a raster with the given height and width where every color is the given color.
+   *
+   * @param height - the height of the raster (rows)
+   * @param width  - the width of the raster (columns)
+   * @param color  - the packed color of every tile that has not been created
+   * @throws IllegalArgumentException - when the dimensions are less than or equal to zero
+   */
+  public TiledRaster(int height, int width, int color) throws IllegalArgumentException {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Invalid Raster dimension!");
+    }
+    this.height = height;
+    this.width = width;
+    this.color = color;
+    this.tilesAcross = (width + TILE - 1) / TILE;
+    this.tiles = new int[((height + TILE - 1) / TILE) * this.tilesAcross][];
+    this.owned = new boolean[this.tiles.length];
+  }
+
+  /**
+   * Returns the height of this raster.
+   *
+   * @return - the number of rows
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of this raster.
+   *
+   * @return - the number of columns
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the number of tiles that have been created.
+   *
+   * @return - the number of tiles that use memory
+   */
+  public int getTileCount() {
+    int count = 0;
+    for (int[] tile : this.tiles) {
+      count += Objects.isNull(tile) ? 0 : 1;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the packed color at the given row and column.
+   *
+   * @param row - the row of the color
+   * @param col - the column of the color
+   * @return - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  public int get(int row, int col) throws IllegalArgumentException {
+    this.checkPosition(row, col);
+    int[] tile = this.tiles[this.tileIndex(row, col)];
+    if (Objects.isNull(tile)) {
+      return this.color;
+    }
+    return tile[(row % TILE) * TILE + col % TILE];
+  }
+
+  /**
+   * Sets the packed color at the given row and column.
+   * Setting a color of a tile that has not been created to the color of this raster does not
+   * create the tile.
+   *
+   * @param row  - the row of the color
+   * @param col  - the column of the color
+   * @param argb - the packed ARGB color
+   * @throws IllegalArgumentException - when the position is outside of this raster
+   */
+  public void set(int row, int col, int argb) throws IllegalArgumentException {
+    this.checkPosition(row, col);
+    int index = this.tileIndex(row, col);
+    if (Objects.isNull(this.tiles[index]) && argb == this.color) {
+      return;
+    }
+    this.ownTile(index)[(row % TILE) * TILE + col % TILE] = argb;
+  }
+
+  /**
+   * Copies the given row of this raster into the destination array.
+   *
+   * @param row  - the row to copy
+   * @param dest - the array to copy into, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void getRow(int row, int[] dest) throws IllegalArgumentException {
+    this.getRow(row, 0, this.width, dest);
+  }
+
+  /**
+   * Overwrites the given row of this raster with the source array.
+   *
+   * @param row - the row to overwrite
+   * @param src - the packed colors, at least the width of this raster long
+   * @throws IllegalArgumentException - when the row is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void setRow(int row, int[] src) throws IllegalArgumentException {
+    this.setRow(row, 0, this.width, src);
+  }
+
+  /**
+   * Copies part of the given row of this raster into the same columns of the destination array.
+   * The columns of tiles that have not been created are filled with the color of this raster.
+   *
+   * @param row    - the row to copy
+   * @param col    - the first column to copy
+   * @param length - the number of columns to copy
+   * @param dest   - the array to copy into, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void getRow(int row, int col, int length, int[] dest) throws IllegalArgumentException {
+    this.checkSpan(row, col, length, dest);
+    int offset = (row % TILE) * TILE;
+    for (int from = col; from < col + length; ) {
+      int to = Math.min(col + length, (from / TILE + 1) * TILE);
+      int[] tile = this.tiles[this.tileIndex(row, from)];
+      if (Objects.isNull(tile)) {
+        Arrays.fill(dest, from, to, this.color);
+      } else {
+        System.arraycopy(tile, offset + from % TILE, dest, from, to - from);
+      }
+      from = to;
+    }
+  }
+
+  /**
+   * Overwrites part of the given row of this raster with the same columns of the source array.
+   * Tiles are only created for the columns that are not the color of this raster.
+   *
+   * @param row    - the row to overwrite
+   * @param col    - the first column to overwrite
+   * @param length - the number of columns to overwrite
+   * @param src    - the packed colors, indexed by column
+   * @throws IllegalArgumentException - when the span is outside of this raster OR
+   *                                  when the array is too short
+   */
+  public void setRow(int row, int col, int length, int[] src) throws IllegalArgumentException {
+    this.checkSpan(row, col, length, src);
+    int offset = (row % TILE) * TILE;
+    for (int from = col; from < col + length; ) {
+      int to = Math.min(col + length, (from / TILE + 1) * TILE);
+      int index = this.tileIndex(row, from);
+      if (Objects.nonNull(this.tiles[index]) || !this.isColor(src, from, to)) {
+        System.arraycopy(src, from, this.ownTile(index), offset + from % TILE, to - from);
+      }
+      from = to;
+    }
+  }
+
+  /**
+   * Returns a deep copy of this raster. The copy shares the tiles that have been created with
+   * this raster, and a tile is only copied the first time either raster changes it.
+   *
+   * @return - a raster with the same colors as this raster
+   */
+  public TiledRaster copy() {
+    TiledRaster copy = new TiledRaster(this.height, this.width, this.color);
+    System.arraycopy(this.tiles, 0, copy.tiles, 0, this.tiles.length);
+    Arrays.fill(this.owned, false);
+    return copy;
+  }
+
+  /*
+   * Helper method that returns the index of the tile that holds the given position.
+   */
+  private int tileIndex(int row, int col) {
+    return (row / TILE) * this.tilesAcross + col / TILE;
+  }
+
+  /*
+   * Helper method that returns the tile at the given index so it can be changed, creating it
+   * from the color of this raster or copying it when it is shared with another raster.
+   */
+  private int[] ownTile(int index) {
+    if (!this.owned[index]) {
+      int[] tile;
+      if (Objects.isNull(this.tiles[index])) {
+        tile = new int[TILE * TILE];
+        Arrays.fill(tile, this.color);
+      } else {
+        tile = this.tiles[index].clone();
+      }
+      this.tiles[index] = tile;
+      this.owned[index] = true;
+    }
+    return this.tiles[index];
+  }
+
+  /*
+   * Helper method that returns whether every color of the given columns is the color of
+   * this raster.
+   */
+  private boolean isColor(int[] src, int from, int to) {
+    for (int j = from; j < to; j++) {
+      if (src[j] != this.color) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Helper method that checks a position of this raster.
+   */
+  private void checkPosition(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+  }
+
+  /*
+   * Helper method that checks a span of a row and the array it is copied to or from.
+   */
+  private void checkSpan(int row, int col, int length, int[] buffer)
+          throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || length < 0 || col + length > this.width) {
+      throw new IllegalArgumentException("Invalid Raster position!");
+    }
+    if (Objects.isNull(buffer) || buffer.length < col + length) {
+      throw new IllegalArgumentException("Invalid row buffer!");
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Objects;
+
+import model.IListOfPixel;
+import model.Raster;
+
+/**
+ * A utility class that converts between Java images and rasters of packed ARGB colors.
+ * Both store a color as one int with alpha in the highest byte, then red, green and blue.
+ * The common image types are read straight from the arrays behind the image a row at a time,
+ * without a Color or a Pixel for each position.
+ */
+public class ImageUtil {
+
+  /**
+   * Copies the colors of the given image into a new raster.
+   *
+   * @param image - the image to copy
+   * @param alpha - whether the alpha of the image is kept, or every color is made opaque
+   * @return - the raster of packed ARGB colors
+   * @throws IllegalArgumentException - when the image is null
+   */
+  public static Raster toRaster(BufferedImage image, boolean alpha)
+          throws IllegalArgumentException {
+    if (Objects.isNull(image)) {
+      throw new IllegalArgumentException("Invalid image input!");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    Raster raster = new Raster(height, width);
+    int[] data = raster.getData();
+
+    // the arrays are only read directly when the raster is not part of a larger image
+    WritableRaster source = image.getRaster();
+    DataBuffer buffer = source.getDataBuffer();
+    boolean direct = source.getSampleModelTranslateX() == 0
+            && source.getSampleModelTranslateY() == 0 && buffer.getNumBanks() == 1;
+
+    switch (direct ? image.getType() : BufferedImage.TYPE_CUSTOM) {
+      case BufferedImage.TYPE_INT_ARGB:
+      case BufferedImage.TYPE_INT_RGB:
+        copyPacked(source, image.getType() == BufferedImage.TYPE_INT_RGB, data);
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        copyComponents(source, data);
+        break;
+      case BufferedImage.TYPE_BYTE_GRAY:
+      case BufferedImage.TYPE_BYTE_INDEXED:
+        copyLookup(source, image.getColorModel(), data);
+        break;
+      default:
+        // any other type is converted by the image a row at a time
+        for (int i = 0; i < height; i++) {
+          image.getRGB(0, i, width, 1, data, i * width, width);
+        }
+        break;
+    }
+
+    if (!alpha) {
+      for (int i = 0; i < data.length; i++) {
+        data[i] |= 0xFF000000;
+      }
+    }
+    return raster;
+  }
+
+  /*
+   * Helper method that copies an image that stores each color in one int.
+   */
+  private static void copyPacked(WritableRaster source, boolean opaque, int[] data) {
+    int width = source.getWidth();
+    int stride = ((SinglePixelPackedSampleModel) source.getSampleModel()).getScanlineStride();
+    DataBufferInt buffer = (DataBufferInt) source.getDataBuffer();
+    int[] pixels = buffer.getData();
+    for (int i = 0; i < source.getHeight(); i++) {
+      System.arraycopy(pixels, buffer.getOffset() + i * stride, data, i * width, width);
+    }
+    if (opaque) {
+      for (int i = 0; i < data.length; i++) {
+        data[i] |= 0xFF000000;
+      }
+    }
+  }
+
+  /*
+   * Helper method that copies an image that stores the red, green, blue and maybe alpha of each
+   * color in separate bytes.
+   */
+  private static void copyComponents(WritableRaster source, int[] data) {
+    int width = source.getWidth();
+    ComponentSampleModel model = (ComponentSampleModel) source.getSampleModel();
+    int stride = model.getScanlineStride();
+    int pixelStride = model.getPixelStride();
+    int[] bands = model.getBandOffsets();
+    DataBufferByte buffer = (DataBufferByte) source.getDataBuffer();
+    byte[] bytes = buffer.getData();
+
+    for (int i = 0; i < source.getHeight(); i++) {
+      int index = buffer.getOffset() + i * stride;
+      for (int j = 0; j < width; j++, index += pixelStride) {
+        int a = bands.length == 4 ? bytes[index + bands[3]] & 0xFF : 0xFF;
+        data[i * width + j] = (a << 24) | ((bytes[index + bands[0]] & 0xFF) << 16)
+                | ((bytes[index + bands[1]] & 0xFF) << 8) | (bytes[index + bands[2]] & 0xFF);
+      }
+    }
+  }
+
+  /*
+   * Helper method that copies an image that stores each color as one byte, such as a gray
+   * level or the index of a palette, by looking up the color of each of the 256 values once.
+   */
+  private static void copyLookup(WritableRaster source, ColorModel colors, int[] data) {
+    // the colors are looked up the same way the image converts a byte of its data
+    int[] lookup = new int[256];
+    int size = colors instanceof IndexColorModel ? ((IndexColorModel) colors).getMapSize() : 256;
+    for (int v = 0; v < Math.min(size, 256); v++) {
+      lookup[v] = colors.getRGB(new byte[]{(byte) v});
+    }
+
+    int width = source.getWidth();
+    ComponentSampleModel model = (ComponentSampleModel) source.getSampleModel();
+    int stride = model.getScanlineStride();
+    int pixelStride = model.getPixelStride();
+    int band = model.getBandOffsets()[0];
+    DataBufferByte buffer = (DataBufferByte) source.getDataBuffer();
+    byte[] bytes = buffer.getData();
+
+    for (int i = 0; i < source.getHeight(); i++) {
+      int index = buffer.getOffset() + i * stride + band;
+      for (int j = 0; j < width; j++, index += pixelStride) {
+        data[i * width + j] = lookup[bytes[index] & 0xFF];
+      }
+    }
+  }
+
+  /**
+   * Creates an image that uses the colors of the given raster without copying them.
+   * Changes to the colors of the raster show in the image and the other way around.
+   *
+   * @param raster - the raster of packed ARGB colors
+   * @return - an image of type TYPE_INT_ARGB backed by the array of the raster
+   * @throws IllegalArgumentException - when the raster is null
+   */
+  public static BufferedImage toBufferedImage(Raster raster) throws IllegalArgumentException {
+    if (Objects.isNull(raster)) {
+      throw new IllegalArgumentException("Invalid raster input!");
+    }
+    int width = raster.getWidth();
+    int height = raster.getHeight();
+    DataBufferInt buffer = new DataBufferInt(raster.getData(), width * height);
+    WritableRaster pixels = java.awt.image.Raster.createPackedRaster(buffer, width, height, width,
+            new int[]{0xFF0000, 0xFF00, 0xFF, 0xFF000000}, null);
+    return new BufferedImage(ColorModel.getRGBdefault(), pixels, false, null);
+  }
+
+  /**
+   * Copies the colors of the given image into a new image a row at a time.
+   *
+   * @param img - the image to copy
+   * @return - an image of type TYPE_INT_ARGB
+   * @throws IllegalArgumentException - when the image is null
+   */
+  public static BufferedImage toBufferedImage(IListOfPixel img) throws IllegalArgumentException {
+    if (Objects.isNull(img)) {
+      throw new IllegalArgumentException("Invalid image input!");
+    }
+    int width = img.getWidth();
+    BufferedImage image = new BufferedImage(width, img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    int[] row = new int[width];
+    for (int i = 0; i < img.getHeight(); i++) {
+      img.getRow(i, row);
+      System.arraycopy(row, 0, data, i * width, width);
+    }
+    return image;
+  }
+}
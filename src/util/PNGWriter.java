@@ -0,0 +1,245 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A class that writes a PNG image file a band of rows at a time, so the whole image is never
+ * held in memory. The colors are written as 8-bit RGBA. Each row is filtered with the PNG filter
+ * whose output has the smallest sum of absolute differences, the heuristic the PNG
+ * specification recommends, and compressed into IDAT chunks as it is written.
+ */
+public final class PNGWriter implements Closeable {
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  // the most bytes of compressed data written in one IDAT chunk
+  private static final int CHUNK_SIZE = 1 << 15;
+  // the compression level ImageIO writes PNG files with by default
+  private static final int LEVEL = 4;
+  // the number of bytes of one RGBA color
+  private static final int BYTES_PER_PIXEL = 4;
+  // the number of PNG filter types
+  private static final int FILTERS = 5;
+
+  private final DataOutputStream out;
+  private final int height;
+  private final int width;
+  private final Deflater deflater;
+  private final CRC32 crc;
+  private final byte[] chunk;
+  private int chunkLength;
+  private byte[] prev;
+  private byte[] curr;
+  private final byte[][] filtered;
+  private int rows;
+
+  /**
+   * Creates a writer that replaces the contents of the given file with an image of the given
+   * size, and writes the header of the image.
+   *
+   * @param filename - the path of the file to write
+   * @param height   - the number of rows of the image
+   * @param width    - the number of columns of the image
+   * @throws IOException              - when the file could not be opened or written
+   * @throws IllegalArgumentException - when the file name is null OR
+   *                                  when the size is zero or negative
+   */
+  public PNGWriter(String filename, int height, int width)
+          throws IOException, IllegalArgumentException {
+    if (Objects.isNull(filename)) {
+      throw new IllegalArgumentException("Invalid file name!");
+    }
+    if (height <= 0 || width <= 0 || (long) width * BYTES_PER_PIXEL + 1 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid PNG dimension!");
+    }
+    this.height = height;
+    this.width = width;
+    this.deflater = new Deflater(LEVEL);
+    this.crc = new CRC32();
+    this.chunk = new byte[CHUNK_SIZE];
+    this.prev = new byte[width * BYTES_PER_PIXEL];
+    this.curr = new byte[width * BYTES_PER_PIXEL];
+    this.filtered = new byte[FILTERS][width * BYTES_PER_PIXEL + 1];
+    this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename),
+            1 << 16));
+
+    try {
+      this.out.write(SIGNATURE);
+      byte[] header = new byte[13];
+      writeInt(header, 0, width);
+      writeInt(header, 4, height);
+      header[8] = 8; // bits per channel
+      header[9] = 6; // RGBA colors
+      this.writeChunk("IHDR", header, header.length);
+    } catch (IOException e) {
+      this.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Writes the given rows of packed ARGB colors below the rows written so far.
+   *
+   * @param data   - the colors of the rows, one row after another
+   * @param offset - the index of the first color of the first row
+   * @param rows   - the number of rows to write
+   * @throws IOException              - when the file could not be written
+   * @throws IllegalArgumentException - when the data does not hold the given rows
+   * @throws IllegalStateException    - when the rows do not fit below the rows written so far
+   */
+  public void writeRows(int[] data, int offset, int rows)
+          throws IOException, IllegalArgumentException, IllegalStateException {
+    if (Objects.isNull(data) || offset < 0 || rows < 0
+            || offset + (long) rows * this.width > data.length) {
+      throw new IllegalArgumentException("Invalid PNG input!");
+    }
+    if (rows > this.height - this.rows) {
+      throw new IllegalStateException("The image does not have that many rows!");
+    }
+    for (int i = 0; i < rows; i++) {
+      int start = offset + i * this.width;
+      for (int col = 0; col < this.width; col++) {
+        int argb = data[start + col];
+        int index = col * BYTES_PER_PIXEL;
+        this.curr[index] = (byte) (argb >>> 16);
+        this.curr[index + 1] = (byte) (argb >>> 8);
+        this.curr[index + 2] = (byte) argb;
+        this.curr[index + 3] = (byte) (argb >>> 24);
+      }
+      byte[] best = this.filterRow();
+      this.deflater.setInput(best, 0, best.length);
+      while (!this.deflater.needsInput()) {
+        this.deflate();
+      }
+
+      byte[] temp = this.prev;
+      this.prev = this.curr;
+      this.curr = temp;
+      this.rows++;
+    }
+  }
+
+  /**
+   * Finishes the compressed data and the image once every row has been written, and closes the
+   * file. A file whose rows were not all written is closed as it is.
+   *
+   * @throws IOException - when the file could not be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (this.rows == this.height && !this.deflater.finished()) {
+        this.deflater.finish();
+        while (!this.deflater.finished()) {
+          this.deflate();
+        }
+        if (this.chunkLength > 0) {
+          this.writeChunk("IDAT", this.chunk, this.chunkLength);
+          this.chunkLength = 0;
+        }
+        this.writeChunk("IEND", this.chunk, 0);
+      }
+    } finally {
+      this.deflater.end();
+      this.out.close();
+    }
+  }
+
+  /*
+   * Helper method that filters the current row with every filter type and returns the filtered
+   * row, led by its filter type, with the smallest sum of absolute differences.
+   */
+  private byte[] filterRow() {
+    int length = this.curr.length;
+    long[] sums = new long[FILTERS];
+    for (int i = 0; i < length; i++) {
+      int x = this.curr[i] & 0xff;
+      int a = i >= BYTES_PER_PIXEL ? this.curr[i - BYTES_PER_PIXEL] & 0xff : 0;
+      int b = this.prev[i] & 0xff;
+      int c = i >= BYTES_PER_PIXEL ? this.prev[i - BYTES_PER_PIXEL] & 0xff : 0;
+
+      byte none = (byte) x;
+      byte sub = (byte) (x - a);
+      byte up = (byte) (x - b);
+      byte average = (byte) (x - ((a + b) >>> 1));
+      byte paeth = (byte) (x - paeth(a, b, c));
+      this.filtered[0][i + 1] = none;
+      this.filtered[1][i + 1] = sub;
+      this.filtered[2][i + 1] = up;
+      this.filtered[3][i + 1] = average;
+      this.filtered[4][i + 1] = paeth;
+      sums[0] += Math.abs(none);
+      sums[1] += Math.abs(sub);
+      sums[2] += Math.abs(up);
+      sums[3] += Math.abs(average);
+      sums[4] += Math.abs(paeth);
+    }
+
+    int best = 0;
+    for (int f = 1; f < FILTERS; f++) {
+      if (sums[f] < sums[best]) {
+        best = f;
+      }
+    }
+    this.filtered[best][0] = (byte) best;
+    return this.filtered[best];
+  }
+
+  /*
+   * Helper method that predicts a byte from its left, upper and upper left neighbours with the
+   * Paeth predictor of the PNG specification.
+   */
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  /*
+   * Helper method that compresses into the rest of the chunk buffer and writes the buffer as an
+   * IDAT chunk once it is full.
+   */
+  private void deflate() throws IOException {
+    this.chunkLength += this.deflater.deflate(this.chunk, this.chunkLength,
+            CHUNK_SIZE - this.chunkLength);
+    if (this.chunkLength == CHUNK_SIZE) {
+      this.writeChunk("IDAT", this.chunk, this.chunkLength);
+      this.chunkLength = 0;
+    }
+  }
+
+  /*
+   * Helper method that writes a chunk of the given type with its length and checksum.
+   */
+  private void writeChunk(String type, byte[] data, int length) throws IOException {
+    byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+    this.crc.reset();
+    this.crc.update(name);
+    this.crc.update(data, 0, length);
+    this.out.writeInt(length);
+    this.out.write(name);
+    this.out.write(data, 0, length);
+    this.out.writeInt((int) this.crc.getValue());
+  }
+
+  /*
+   * Helper method that writes an integer into the given bytes, the most significant byte first.
+   */
+  private static void writeInt(byte[] bytes, int index, int value) {
+    bytes[index] = (byte) (value >>> 24);
+    bytes[index + 1] = (byte) (value >>> 16);
+    bytes[index + 2] = (byte) (value >>> 8);
+    bytes[index + 3] = (byte) value;
+  }
+}
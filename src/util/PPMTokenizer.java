@@ -0,0 +1,215 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * A class that reads the tokens of a PPM file from a stream of bytes.
+ * The bytes are read in large blocks into one reusable buffer, comments that start with a '#'
+ * are skipped up to the end of their line, and integers are parsed from the ASCII digits
+ * without creating a String for each one.
+ */
+public final class PPMTokenizer implements Closeable {
+  // the number of bytes read from the stream at a time
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final InputStream in;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+
+  /**
+   * Creates a tokenizer that reads from the given stream.
+   *
+   * @param in - the stream to read from
+   * @throws IllegalArgumentException - when the stream is null
+   */
+  public PPMTokenizer(InputStream in) throws IllegalArgumentException {
+    if (Objects.isNull(in)) {
+      throw new IllegalArgumentException("Invalid input stream!");
+    }
+    this.in = in;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Returns the next token, such as the magic number of the file.
+   *
+   * @return - the next run of characters that are not whitespace
+   * @throws IOException              - when the stream could not be read
+   * @throws IllegalArgumentException - when there are no more tokens
+   */
+  public String nextToken() throws IOException, IllegalArgumentException {
+    int c = this.skipSpace();
+    if (c < 0) {
+      throw new IllegalArgumentException("Unexpected end of PPM file!");
+    }
+    StringBuilder token = new StringBuilder();
+    while (c >= 0 && !isSpace(c) && c != '#') {
+      token.append((char) c);
+      c = this.read();
+    }
+    this.unreadComment(c);
+    return token.toString();
+  }
+
+  /**
+   * Returns the next non-negative integer.
+   * One whitespace character after the digits is consumed, so the binary data of a P6 file
+   * starts right after the max value.
+   *
+   * @return - the integer
+   * @throws IOException              - when the stream could not be read
+   * @throws IllegalArgumentException - when the next token is not an integer OR
+   *                                  when there are no more tokens
+   */
+  public int nextInt() throws IOException, IllegalArgumentException {
+    int c = this.skipSpace();
+    if (c < 0) {
+      throw new IllegalArgumentException("Unexpected end of PPM file!");
+    }
+    if (c < '0' || c > '9') {
+      throw new IllegalArgumentException("Invalid PPM file!");
+    }
+    int value = 0;
+    while (c >= '0' && c <= '9') {
+      if (value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+        throw new IllegalArgumentException("Invalid PPM file!");
+      }
+      value = value * 10 + (c - '0');
+      c = this.read();
+    }
+    if (c >= 0 && !isSpace(c) && c != '#') {
+      throw new IllegalArgumentException("Invalid PPM file!");
+    }
+    this.unreadComment(c);
+    return value;
+  }
+
+  /**
+   * Returns whether there is another token before the end of the stream.
+   *
+   * @return - true if there is another token
+   * @throws IOException - when the stream could not be read
+   */
+  public boolean hasNext() throws IOException {
+    int c = this.skipSpace();
+    if (c < 0) {
+      return false;
+    }
+    this.position--;
+    return true;
+  }
+
+  /**
+   * Reads exactly the given number of bytes that follow the last token.
+   *
+   * @param dest   - the array to read into
+   * @param offset - the first index of the array to read into
+   * @param length - the number of bytes to read
+   * @throws IOException              - when the stream could not be read
+   * @throws IllegalArgumentException - when the stream ends first
+   */
+  public void readBytes(byte[] dest, int offset, int length)
+          throws IOException, IllegalArgumentException {
+    // use the bytes that are already buffered first
+    int buffered = Math.min(length, this.limit - this.position);
+    System.arraycopy(this.buffer, this.position, dest, offset, buffered);
+    this.position += buffered;
+
+    for (int done = buffered; done < length; ) {
+      int count = this.in.read(dest, offset + done, length - done);
+      if (count < 0) {
+        throw new IllegalArgumentException("Unexpected end of PPM file!");
+      }
+      done += count;
+    }
+  }
+
+  /**
+   * Skips the given number of bytes that follow the last token.
+   *
+   * @param length - the number of bytes to skip
+   * @throws IOException              - when the stream could not be read
+   * @throws IllegalArgumentException - when the stream ends first
+   */
+  public void skipBytes(long length) throws IOException, IllegalArgumentException {
+    // skip the bytes that are already buffered first
+    int buffered = (int) Math.min(length, this.limit - this.position);
+    this.position += buffered;
+
+    for (long done = buffered; done < length; ) {
+      long count = this.in.skip(length - done);
+      if (count <= 0) {
+        // skip does not report the end of the stream, so read one byte to find out
+        if (this.in.read() < 0) {
+          throw new IllegalArgumentException("Unexpected end of PPM file!");
+        }
+        count = 1;
+      }
+      done += count;
+    }
+  }
+
+  /**
+   * Closes the stream this tokenizer reads from.
+   *
+   * @throws IOException - when the stream could not be closed
+   */
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
+
+  /*
+   * Helper method that skips whitespace and comments and returns the first character after
+   * them, or -1 at the end of the stream.
+   */
+  private int skipSpace() throws IOException {
+    int c = this.read();
+    while (c >= 0 && (isSpace(c) || c == '#')) {
+      if (c == '#') {
+        // a comment runs to the end of its line
+        while (c >= 0 && c != '\n' && c != '\r') {
+          c = this.read();
+        }
+      }
+      c = this.read();
+    }
+    return c;
+  }
+
+  /*
+   * Helper method that puts back a '#' that ended a token so the comment is skipped later.
+   */
+  private void unreadComment(int c) {
+    if (c == '#') {
+      this.position--;
+    }
+  }
+
+  /*
+   * Helper method that returns the next byte, filling the buffer when it is empty,
+   * or -1 at the end of the stream.
+   */
+  private int read() throws IOException {
+    if (this.position == this.limit) {
+      this.limit = this.in.read(this.buffer, 0, this.buffer.length);
+      this.position = 0;
+      if (this.limit <= 0) {
+        this.limit = 0;
+        return -1;
+      }
+    }
+    return this.buffer[this.position++] & 0xFF;
+  }
+
+  /*
+   * Helper method that returns whether the given character is whitespace.
+   */
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+  }
+}
@@ -0,0 +1,146 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A class that writes the text and binary data of PPM and collage project files.
+ * Integers are encoded as ASCII digits straight into one reusable buffer without creating a
+ * String for each one, and the buffer is written through a file channel whenever it is full.
+ */
+public final class PPMWriter implements Closeable {
+  // the number of bytes written to the file at a time
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] digits;
+
+  /**
+   * Creates a writer that replaces the contents of the given file.
+   *
+   * @param filename - the path of the file to write
+   * @throws IOException              - when the file could not be opened
+   * @throws IllegalArgumentException - when the file name is null
+   */
+  public PPMWriter(String filename) throws IOException, IllegalArgumentException {
+    if (Objects.isNull(filename)) {
+      throw new IllegalArgumentException("Invalid file name!");
+    }
+    this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.digits = new byte[11];
+  }
+
+  /**
+   * Writes the given text, which is expected to be ASCII.
+   *
+   * @param text - the text to write
+   * @return - this writer
+   * @throws IOException - when the file could not be written
+   */
+  public PPMWriter write(String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      this.writeByte(text.charAt(i));
+    }
+    return this;
+  }
+
+  /**
+   * Writes the decimal digits of the given integer.
+   *
+   * @param value - the integer to write
+   * @return - this writer
+   * @throws IOException - when the file could not be written
+   */
+  public PPMWriter writeInt(int value) throws IOException {
+    this.reserve(this.digits.length);
+    if (value == Integer.MIN_VALUE) {
+      return this.write(Integer.toString(value));
+    }
+    if (value < 0) {
+      this.buffer.put((byte) '-');
+      value = -value;
+    }
+
+    // the digits are found from the last to the first
+    int count = 0;
+    do {
+      this.digits[count++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    while (count > 0) {
+      this.buffer.put(this.digits[--count]);
+    }
+    return this;
+  }
+
+  /**
+   * Writes the low byte of the given value.
+   *
+   * @param value - the byte to write
+   * @return - this writer
+   * @throws IOException - when the file could not be written
+   */
+  public PPMWriter writeByte(int value) throws IOException {
+    this.reserve(1);
+    this.buffer.put((byte) value);
+    return this;
+  }
+
+  /**
+   * Writes the low two bytes of the given value, the most significant byte first.
+   *
+   * @param value - the value to write
+   * @return - this writer
+   * @throws IOException - when the file could not be written
+   */
+  public PPMWriter writeShort(int value) throws IOException {
+    this.reserve(2);
+    this.buffer.putShort((short) value);
+    return this;
+  }
+
+  /**
+   * Writes every byte that is still buffered to the file.
+   *
+   * @throws IOException - when the file could not be written
+   */
+  public void flush() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  /**
+   * Writes every byte that is still buffered and closes the file.
+   *
+   * @throws IOException - when the file could not be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /*
+   * Helper method that flushes the buffer when it does not have room for the given number
+   * of bytes.
+   */
+  private void reserve(int length) throws IOException {
+    if (this.buffer.remaining() < length) {
+      this.flush();
+    }
+  }
+}
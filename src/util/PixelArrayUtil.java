@@ -6,6 +6,8 @@ import java.util.Objects;
 import model.IPixel;
 import model.IPosn;
 import model.Pixel;
+import model.Posn;
+import model.Raster;
 
 /**
  * A utility class that helps with Pixel arrays.
@@ -54,7 +56,23 @@ public class PixelArrayUtil {
   }
 
   /**
-   * Combines the rgb array values of the current pixel and previous pixel.
+   * Creates a Pixel from the given packed ARGB color.
+   *
+   * @param argb     - the packed color
+   * @param maxValue - the max value of the channels
+   * @param row      - the row of the pixel
+   * @param col      - the column of the pixel
+   * @return - the Pixel with the color of the packed color
+   */
+  public static IPixel toPixel(int argb, int maxValue, int row, int col) {
+    return new Pixel(Raster.red(argb), Raster.green(argb), Raster.blue(argb),
+            Raster.alpha(argb), maxValue, new Posn(row, col));
+  }
+
+  /**
+   * Combines the rgb array values of the current pixel over the previous pixel.
+   * The "over" blend is computed with integer arithmetic scaled by the square of the max value,
+   * so partially transparent pixels are blended by their alpha.
    *
    * @param curr     - the current pixel's rgba array values
    * @param prev     - the previous pixel's rgba array values
@@ -67,43 +85,241 @@ public class PixelArrayUtil {
       throw new IllegalArgumentException("Invalid rgb array input!");
     }
 
-    int r = curr[0];
-    int g = curr[1];
-    int b = curr[2];
-    int a = curr[3];
-    int dr = prev[0];
-    int dg = prev[1];
-    int db = prev[2];
-    int da = prev[3];
-
-    double percentAlpha = (a / maxValue)
-            + ((da / maxValue) * (1 - (a / maxValue)));
-    int new_alpha = (int) Math.round(percentAlpha * maxValue);
-    int new_red = (int) Math.round((convertCompWithAlpha(r, a, maxValue)
-            + (convertCompWithAlpha(dr, da, maxValue) * (1 - (a / maxValue))))
-            * (1 / percentAlpha));
-    int new_green = (int) Math.round((convertCompWithAlpha(g, a, maxValue)
-            + (convertCompWithAlpha(dg, da, maxValue)
-            * (1 - (a / maxValue)))) * (1 / percentAlpha));
-    int new_blue = (int) Math.round((convertCompWithAlpha(b, a, maxValue)
-            + (convertCompWithAlpha(db, da, maxValue)
-            * (1 - (a / maxValue)))) * (1 / percentAlpha));
-
-    // if any of the values go over the maxValue then set it to the max value
-    new_red = Math.min(new_red, maxValue);
-    new_green = Math.min(new_green, maxValue);
-    new_blue = Math.min(new_blue, maxValue);
+    int a = Math.min(curr[3], maxValue);
+    int da = Math.min(prev[3], maxValue);
+
+    // an opaque pixel hides the previous pixel and a transparent pixel shows it
+    if (a == maxValue) {
+      return new int[]{Math.min(curr[0], maxValue), Math.min(curr[1], maxValue),
+              Math.min(curr[2], maxValue), a};
+    }
+    if (a == 0) {
+      return new int[]{Math.min(prev[0], maxValue), Math.min(prev[1], maxValue),
+              Math.min(prev[2], maxValue), da};
+    }
+
+    long weight = (long) a * maxValue;
+    long prevWeight = (long) da * (maxValue - a);
+    long total = weight + prevWeight;
 
     // create the color array value
-    int[] rgba = {new_red, new_green, new_blue, new_alpha};
+    int[] rgba = {
+        blendChannel(curr[0], prev[0], weight, prevWeight, total, maxValue),
+        blendChannel(curr[1], prev[1], weight, prevWeight, total, maxValue),
+        blendChannel(curr[2], prev[2], weight, prevWeight, total, maxValue),
+        (int) ((total + maxValue / 2) / maxValue)};
     // return the new Pixel
     return rgba;
   }
 
+  /**
+   * Combines the packed ARGB color of the current pixel over the previous pixel.
+   * This produces the same values as {@link #combinePixel(int[], int[], int)}.
+   *
+   * @param curr     - the current pixel's packed color
+   * @param prev     - the previous pixel's packed color
+   * @param maxValue - the max value of the rgba values
+   * @return - the combined packed color
+   */
+  public static int combineARGB(int curr, int prev, int maxValue) {
+    if (maxValue != 255) {
+      return Raster.pack(combinePixel(Raster.unpack(curr), Raster.unpack(prev), maxValue));
+    }
+
+    // an opaque pixel hides the previous pixel and a transparent pixel shows it
+    int a = curr >>> 24;
+    if (a == 255) {
+      return curr;
+    }
+    if (a == 0) {
+      return prev;
+    }
+    return blend8(curr, a, prev);
+  }
+
+  /**
+   * Combines a row of packed ARGB colors over another row in place.
+   * The colors in the destination row are replaced with the source colors combined over them.
+   *
+   * @param src      - the packed colors to combine over the destination
+   * @param srcPos   - the first index of the source row
+   * @param dest     - the packed colors that are combined under the source
+   * @param destPos  - the first index of the destination row
+   * @param length   - the number of colors to combine
+   * @param maxValue - the max value of the rgba values
+   */
+  public static void combineRow(int[] src, int srcPos, int[] dest, int destPos, int length,
+                                int maxValue) {
+    if (maxValue != 255) {
+      for (int j = 0; j < length; j++) {
+        dest[destPos + j] = combineARGB(src[srcPos + j], dest[destPos + j], maxValue);
+      }
+      return;
+    }
+
+    // the same cases as combineARGB, where transparent colors leave the destination alone
+    for (int j = 0; j < length; j++) {
+      int curr = src[srcPos + j];
+      int a = curr >>> 24;
+      if (a == 255) {
+        dest[destPos + j] = curr;
+      } else if (a != 0) {
+        dest[destPos + j] = blend8(curr, a, dest[destPos + j]);
+      }
+    }
+  }
+
+  /*
+   * Helper method that blends a partially transparent packed color over another when the
+   * max value is 255, without unpacking into arrays.
+   */
+  private static int blend8(int curr, int a, int prev) {
+    int weight = a * 255;
+    int prevWeight = (prev >>> 24) * (255 - a);
+    int total = weight + prevWeight;
+    int half = total >> 1;
+
+    int r = (((curr >> 16) & 0xFF) * weight + ((prev >> 16) & 0xFF) * prevWeight + half) / total;
+    int g = (((curr >> 8) & 0xFF) * weight + ((prev >> 8) & 0xFF) * prevWeight + half) / total;
+    int b = ((curr & 0xFF) * weight + (prev & 0xFF) * prevWeight + half) / total;
+    int alpha = (total + 127) / 255;
+    return (alpha << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  /*
+   * Helper method that blends one channel of the current and previous pixel given their
+   * weights, rounding to the nearest value.
+   */
+  private static int blendChannel(int c, int dc, long weight, long prevWeight, long total,
+                                  int maxValue) {
+    long channel = (c * weight + dc * prevWeight + total / 2) / total;
+    return (int) Math.min(channel, maxValue);
+  }
+
+  /**
+   * Brightens the current packed color by the Screen method using the HSL representation.
+   *
+   * @param curr     - the current pixel's packed color
+   * @param prev     - the previous pixel's packed color
+   * @param maxValue - the max value of the rgba values
+   * @return - the brightened packed color
+   */
+  public static int brightenARGB(int curr, int prev, int maxValue) {
+    double[] currHSL = getHSL(curr, maxValue);
+    double l = currHSL[2];
+    double dl = getHSL(prev, maxValue)[2];
+
+    int[] newRGB = RepresentationConverter.convertHSLtoRGB(currHSL[0], currHSL[1],
+            (1 - ((1 - l) * (1 - dl))));
+    return Raster.pack(newRGB[0], newRGB[1], newRGB[2], Raster.alpha(curr));
+  }
+
+  /**
+   * Darkens the current packed color by the Multiply method using the HSL representation.
+   *
+   * @param curr     - the current pixel's packed color
+   * @param prev     - the previous pixel's packed color
+   * @param maxValue - the max value of the rgba values
+   * @return - the darkened packed color
+   */
+  public static int darkenARGB(int curr, int prev, int maxValue) {
+    double[] currHSL = getHSL(curr, maxValue);
+    double l = currHSL[2];
+    double dl = getHSL(prev, maxValue)[2];
+
+    int[] newRGB = RepresentationConverter.convertHSLtoRGB(currHSL[0], currHSL[1], l * dl);
+    return Raster.pack(newRGB[0], newRGB[1], newRGB[2], Raster.alpha(curr));
+  }
+
+  /**
+   * Inverts the current packed color using the previous pixel's packed color.
+   *
+   * @param curr - the current pixel's packed color
+   * @param prev - the previous pixel's packed color
+   * @return - the inverted packed color
+   */
+  public static int invertARGB(int curr, int prev) {
+    return Raster.pack(Math.abs(Raster.red(curr) - Raster.red(prev)),
+            Math.abs(Raster.green(curr) - Raster.green(prev)),
+            Math.abs(Raster.blue(curr) - Raster.blue(prev)), Raster.alpha(curr));
+  }
+
+  /**
+   * Inverts a row of packed colors using the row of packed colors below it.
+   * The loop has no branches so it can be compiled to SIMD instructions by the JIT.
+   *
+   * @param curr   - the current packed colors
+   * @param prev   - the previous packed colors
+   * @param dest   - the array the inverted colors are written to, which may be curr
+   * @param offset - the first index to invert
+   * @param length - the number of colors to invert
+   */
+  public static void invertRow(int[] curr, int[] prev, int[] dest, int offset, int length) {
+    for (int j = offset; j < offset + length; j++) {
+      int c = curr[j];
+      int p = prev[j];
+      int r = Math.abs(((c >> 16) & 0xFF) - ((p >> 16) & 0xFF));
+      int g = Math.abs(((c >> 8) & 0xFF) - ((p >> 8) & 0xFF));
+      int b = Math.abs((c & 0xFF) - (p & 0xFF));
+      dest[j] = (c & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+  }
+
+  /**
+   * Keeps only the channels of the given mask in a row of packed colors.
+   * The loop has no branches so it can be compiled to SIMD instructions by the JIT.
+   *
+   * @param curr   - the current packed colors
+   * @param dest   - the array the masked colors are written to, which may be curr
+   * @param offset - the first index to mask
+   * @param length - the number of colors to mask
+   * @param mask   - the channels to keep
+   */
+  public static void maskRow(int[] curr, int[] dest, int offset, int length, int mask) {
+    for (int j = offset; j < offset + length; j++) {
+      dest[j] = curr[j] & mask;
+    }
+  }
+
+  /**
+   * Brightens a row of packed colors by the Screen method using the row below it.
+   *
+   * @param curr     - the current packed colors
+   * @param prev     - the previous packed colors
+   * @param dest     - the array the brightened colors are written to, which may be curr
+   * @param offset   - the first index to brighten
+   * @param length   - the number of colors to brighten
+   * @param maxValue - the max value of the rgba values
+   */
+  public static void brightenRow(int[] curr, int[] prev, int[] dest, int offset, int length,
+                                 int maxValue) {
+    for (int j = offset; j < offset + length; j++) {
+      dest[j] = brightenARGB(curr[j], prev[j], maxValue);
+    }
+  }
+
+  /**
+   * Darkens a row of packed colors by the Multiply method using the row below it.
+   *
+   * @param curr     - the current packed colors
+   * @param prev     - the previous packed colors
+   * @param dest     - the array the darkened colors are written to, which may be curr
+   * @param offset   - the first index to darken
+   * @param length   - the number of colors to darken
+   * @param maxValue - the max value of the rgba values
+   */
+  public static void darkenRow(int[] curr, int[] prev, int[] dest, int offset, int length,
+                               int maxValue) {
+    for (int j = offset; j < offset + length; j++) {
+      dest[j] = darkenARGB(curr[j], prev[j], maxValue);
+    }
+  }
+
   /*
-    Helper method to combine channels with alpha value
+   * Helper method that gets the HSL values for the given packed color.
    */
-  private static double convertCompWithAlpha(int channel, int alpha, int maxValue) {
-    return ((alpha / maxValue) * channel);
+  private static double[] getHSL(int argb, int maxValue) {
+    return RepresentationConverter.convertRGBtoHSL((double) Raster.red(argb) / maxValue,
+            (double) Raster.green(argb) / maxValue, (double) Raster.blue(argb) / maxValue);
   }
 }
@@ -41,12 +41,13 @@ public class PPMTextViewImpl implements TextView {
 
   /**
    * Renders the project into the data output of the implementation.
+   * The project is written to the output as it is rendered, without building it as a String.
    *
    * @throws IOException - if the transmission of the project to the data output fails
    */
   @Override
   public void render() throws IOException {
-    this.out.append(this.toString());
+    this.model.writeText(this.out);
   }
 
   /**
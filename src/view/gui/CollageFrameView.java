@@ -141,6 +141,16 @@ public class CollageFrameView extends JFrame implements GUIView {
     features.updateModel(this.model);
   }
 
+  /**
+   * Shows the progress of a file that is being saved in the title of the window.
+   *
+   * @param message - the progress to show, or null once the save has ended
+   */
+  @Override
+  public void showProgress(String message) {
+    this.setTitle(Objects.isNull(message) ? "Collaging App" : "Collaging App - " + message);
+  }
+
   /**
    * Quits the current running program.
    */
@@ -161,10 +171,14 @@ public class CollageFrameView extends JFrame implements GUIView {
         String filePath = this.showFileChooser();
         if (Objects.isNull(filePath)) {
           features.warn("Saving cancelled.", "Save Cancel");
+        } else {
+          features.saveFile(filePath);
         }
-        features.saveFile(filePath);
       }
         break;
+      case "Cancel Save":
+        features.cancelSave();
+        break;
       case "Load Image": {
         String filePath;
         final JFileChooser fchooser = new JFileChooser(".");
@@ -47,6 +47,7 @@ public class CommandListPanel extends JPanel {
     this.commandButtons.add(new JButton("Load Project"));
     this.commandButtons.add(new JButton("Add Layer"));
     this.commandButtons.add(new JButton("Set Filter"));
+    this.commandButtons.add(new JButton("Cancel Save"));
     this.commandButtons.add(new JButton("Quit"));
   }
 
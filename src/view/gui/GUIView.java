@@ -41,4 +41,11 @@ public interface GUIView {
    * Quits the current running program.
    */
   void quit();
+
+  /**
+   * Shows the progress of a file that is being saved, or stops showing it.
+   *
+   * @param message - the progress to show, or null once the save has ended
+   */
+  void showProgress(String message);
 }
@@ -2,7 +2,9 @@ package controller;
 
 import org.junit.Test;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.StringReader;
 
 import model.CollageModel;
@@ -14,6 +16,7 @@ import view.TextView;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -104,4 +107,28 @@ public class CollageControllerImplTest {
     */
   }
 
+  @Test
+  public void testReadAfterSave() throws IOException {
+    File image = File.createTempFile("saved", ".ppm");
+    File project = File.createTempFile("saved", ".collage");
+    try {
+      // each file is read by the command right after the one that saves it
+      this.init("new-project 600 400\nadd-layer first-layer\n"
+              + "add-image-to-layer first-layer res/doggo.jpeg 0 0\n"
+              + "save-image " + image.getPath() + "\n"
+              + "add-image-to-layer first-layer " + image.getPath() + " 10 10\n"
+              + "save-project " + project.getPath() + "\n"
+              + "load-project " + project.getPath() + "\nquit");
+      this.controller.runCollage();
+
+      String output = this.out.toString();
+      assertFalse(output.contains("could not be read"));
+      assertTrue(output.contains("Saved " + image.getPath() + "."));
+      assertTrue(output.contains("Saved " + project.getPath() + "."));
+      assertEquals(2, this.model.getLayer("first-layer").getImages().size());
+    } finally {
+      image.delete();
+      project.delete();
+    }
+  }
 }
\ No newline at end of file
@@ -2,6 +2,13 @@ package model;
 
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -156,6 +163,48 @@ public class CollagePPMModelTest {
             + "255 255 255 255 255 \n", this.model1.toString());
   }
 
+  @Test
+  public void testWriteText() throws IOException {
+    this.model1.startModel(3, 4, 255);
+    this.model1.addLayer("first-layer");
+    this.model1.setFilter("first-layer", Filter.RED);
+    // layers whose filters read the rendered layers below them
+    this.model1.addLayer("second-layer");
+    this.model1.setFilter("second-layer", Filter.DARKEN);
+    this.model1.addLayer("third-layer");
+    this.model1.setFilter("third-layer", Filter.INVERT);
+    this.model1.getLayer("first-layer").setARGB(1, 2, Raster.pack(200, 100, 50, 255));
+    this.model1.getLayer("second-layer").setARGB(1, 2, Raster.pack(40, 220, 90, 128));
+    this.model1.getLayer("third-layer").setARGB(1, 2, Raster.pack(10, 20, 30, 255));
+    this.model1.getLayer("third-layer").setARGB(0, 0, Raster.pack(10, 20, 30, 60));
+
+    // the text of every rendered layer, built one pixel at a time
+    String expected = "4 3\n255\n";
+    for (ILayer l : this.model1.renderLayers()) {
+      expected += l.getName() + " " + l.getFilter().getOption() + "\n";
+      for (IPixel p : l.render()) {
+        expected += p.rgbaString() + " ";
+      }
+      expected += "\n";
+    }
+    assertEquals(expected, this.model1.toString());
+
+    StringBuilder text = new StringBuilder();
+    this.model1.writeText(text);
+    assertEquals(expected, text.toString());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    this.model1.writeText(bytes);
+    assertEquals(expected, bytes.toString("US-ASCII"));
+
+    try {
+      this.model1.writeText((Appendable) null);
+      fail("Null output should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Cannot have null argument.", e.getMessage());
+    }
+  }
+
   @Test
   public void testSaveImage() {
     this.model1.startModel(1, 1, 255);
@@ -163,4 +212,194 @@ public class CollagePPMModelTest {
 
     assertEquals("background", l1.getName());
   }
+
+  @Test
+  public void testCreateImageObjectSharesOnlySavedImage() {
+    this.model1.startModel(2, 2, 255);
+    Layer layer = new Layer("raster", new Raster(2, 2), 255);
+    BufferedImage copied = this.model1.createImageObject(layer);
+    layer.setARGB(0, 0, Raster.pack(1, 2, 3, 255));
+    assertEquals(0, copied.getRGB(0, 0));
+
+    ILayer saved = this.model1.saveImage();
+    BufferedImage shared = this.model1.createImageObject(saved);
+    saved.setARGB(1, 1, Raster.pack(4, 5, 6, 255));
+    assertEquals(Raster.pack(4, 5, 6, 255), shared.getRGB(1, 1));
+    assertEquals(saved.getARGB(0, 0), this.model1.createImageObject(saved).getRGB(0, 0));
+  }
+
+  /*
+   * Helper method that creates an image of one color.
+   */
+  private IListOfPixel createSquare(int size, int argb) {
+    Raster raster = new Raster(size, size);
+    raster.fill(argb);
+    return new Image(raster, 255, new Posn(0, 0));
+  }
+
+  /*
+   * Helper method that makes the same edits to the given model,
+   * saving the image after each edit if asked to.
+   */
+  private ILayer editModel(CollageModel model, boolean saveEachEdit) {
+    model.startModel(40, 30, 255);
+    model.addLayer("first");
+    model.addLayer("second");
+    List<Runnable> edits = new ArrayList<Runnable>();
+    edits.add(() -> model.addImageToLayer(model.getLayer("first"),
+            this.createSquare(10, Raster.pack(200, 20, 20, 255)), 5, 5));
+    edits.add(() -> model.addImageToLayer(model.getLayer("second"),
+            this.createSquare(12, Raster.pack(20, 200, 20, 128)), 8, 25));
+    edits.add(() -> model.setFilter("second", Filter.INVERT));
+    edits.add(() -> model.getLayer("first").setARGB(39, 0, Raster.pack(1, 2, 3, 255)));
+    edits.add(() -> model.addImageToLayer(model.getLayer("first"),
+            this.createSquare(50, Raster.pack(0, 0, 255, 100)), -20, -20));
+    edits.add(() -> model.setFilter("first", Filter.BRIGHTEN));
+    edits.add(() -> model.getLayer("background").setARGB(20, 20, Raster.pack(0, 0, 0, 255)));
+    edits.add(() -> model.addLayer("third"));
+    edits.add(() -> model.addImageToLayer(model.getLayer("third"),
+            this.createSquare(3, Raster.pack(9, 9, 9, 255)), 30, 10));
+    edits.add(() -> model.addImageToLayer(model.getLayer("third"),
+            this.createSquare(40, Raster.pack(90, 80, 70, 255)), 10, -5));
+    edits.add(() -> model.getLayer("first").setARGB(25, 3, Raster.pack(4, 5, 6, 255)));
+    edits.add(() -> model.removeLayer("second"));
+    edits.add(() -> model.removeLayer("third"));
+
+    for (Runnable edit : edits) {
+      edit.run();
+      if (saveEachEdit) {
+        model.saveImage();
+      }
+    }
+    return model.saveImage();
+  }
+
+  @Test
+  public void testSaveImageOnlyChangedRegions() {
+    ILayer incremental = this.editModel(new CollagePPM(1), true);
+    ILayer full = this.editModel(new CollagePPM(1), false);
+
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 30; j++) {
+        assertEquals(full.getARGB(i, j), incremental.getARGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testSaveImageWithCacheBudgets() {
+    ILayer full = this.editModel(new CollagePPM(1, 0), false);
+
+    // no cached levels below the top, one level, and every level
+    long level = 2L * Integer.BYTES * 40 * 30;
+    for (long budget : new long[]{0, 2 * level, Long.MAX_VALUE}) {
+      ILayer cached = this.editModel(new CollagePPM(1, budget), true);
+      for (int i = 0; i < 40; i++) {
+        for (int j = 0; j < 30; j++) {
+          assertEquals(full.getARGB(i, j), cached.getARGB(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBinaryPPM() throws IOException {
+    Raster raster = new Raster(3, 70);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 70; j++) {
+        raster.set(i, j, Raster.pack(i * 80, j * 3, 255 - j, 255));
+      }
+    }
+
+    // one byte channels for a max value of 255 and two byte channels above it
+    for (int maxValue : new int[]{255, 65535}) {
+      File file = File.createTempFile("binary", ".ppm");
+      try {
+        this.model1.writeImage(new Image(raster, maxValue, new Posn(0, 0)), file.getPath(), true);
+        assertEquals(maxValue > 255 ? 14 + 3 * 70 * 6 : 12 + 3 * 70 * 3, file.length());
+
+        IListOfPixel read = this.model1.readPPM(file.getPath());
+        assertEquals(3, read.getHeight());
+        assertEquals(70, read.getWidth());
+        for (int i = 0; i < 3; i++) {
+          for (int j = 0; j < 70; j++) {
+            assertEquals(raster.get(i, j), read.getARGB(i, j));
+          }
+        }
+      } finally {
+        file.delete();
+      }
+    }
+  }
+
+  @Test
+  public void testPlainPPMMaxValue() throws IOException {
+    Raster raster = new Raster(2, 2);
+    raster.set(0, 0, Raster.pack(255, 128, 0, 255));
+    raster.set(0, 1, Raster.pack(1, 2, 3, 255));
+    raster.set(1, 0, Raster.pack(0, 0, 0, 255));
+    raster.set(1, 1, Raster.pack(255, 255, 255, 255));
+
+    // the channels of a plain file are scaled to its max value like those of a binary file
+    File file = File.createTempFile("plain", ".ppm");
+    try {
+      this.model1.writeImage(new Image(raster, 65535, new Posn(0, 0)), file.getPath(), false);
+      assertEquals("P3\n2 2\n65535\n65535 32896 0 257 514 771 \n0 0 0 65535 65535 65535 \n",
+              new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+
+      IListOfPixel read = this.model1.readPPM(file.getPath());
+      for (int i = 0; i < 2; i++) {
+        for (int j = 0; j < 2; j++) {
+          assertEquals(raster.get(i, j), read.getARGB(i, j));
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testAddImageFileToLayer() throws IOException {
+    File plain = File.createTempFile("plain", ".ppm");
+    File binary = File.createTempFile("binary", ".ppm");
+    try {
+      IListOfPixel tiger = this.model1.readImages("res/tiger-g5e7876041_1280.png");
+      this.model1.writeImage(tiger, plain.getPath(), false);
+      this.model1.writeImage(tiger, binary.getPath(), true);
+
+      // inside, across every edge, and outside of the canvas
+      int[][] positions = {{10, 20}, {-300, -1000}, {350, 900}, {-700, 0}, {0, 2000}};
+      String[] files = {"res/tiger-g5e7876041_1280.png", "res/doggo.jpeg", plain.getPath(),
+          binary.getPath()};
+      for (String file : files) {
+        for (int[] position : positions) {
+          CollageModel whole = new CollagePPM(1);
+          whole.startModel(400, 1000, 255);
+          whole.addImageToLayer(whole.getLayer("background"), whole.readImages(file),
+                  position[0], position[1]);
+          CollageModel region = new CollagePPM(1);
+          region.startModel(400, 1000, 255);
+          region.addImageToLayer(region.getLayer("background"), file, position[0], position[1]);
+
+          for (int i = 0; i < 400; i++) {
+            for (int j = 0; j < 1000; j++) {
+              assertEquals(whole.getLayer("background").getARGB(i, j),
+                      region.getLayer("background").getARGB(i, j));
+            }
+          }
+        }
+      }
+    } finally {
+      plain.delete();
+      binary.delete();
+    }
+
+    try {
+      this.model1.startModel(10, 10, 255);
+      this.model1.addImageToLayer(this.model1.getLayer("background"), "res/missing.png", 0, 0);
+      fail("Should not be able to add an image that does not exist!");
+    } catch (FileNotFoundException e) {
+      assertEquals("File res/missing.png not found!", e.getMessage());
+    }
+  }
 }
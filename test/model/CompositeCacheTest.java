@@ -0,0 +1,125 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the CompositeCache class.
+ */
+public class CompositeCacheTest {
+
+  /*
+   * Helper method that creates a stack of the given number of layers.
+   */
+  private List<ILayer> createLayers(int count) {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    for (int i = 0; i < count; i++) {
+      layers.add(new Layer("layer" + i, 2, 3, 255));
+    }
+    return layers;
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    List<ILayer> layers = this.createLayers(3);
+    CompositeCache cache = new CompositeCache(2 * CompositeCache.levelSize(2, 3));
+
+    cache.put(new CompositeCache.Level(layers, 0, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 1, 2, 3));
+    cache.get(0);
+    cache.put(new CompositeCache.Level(layers, 2, 2, 3));
+
+    assertNotNull(cache.get(0));
+    assertNull(cache.get(1));
+    assertNotNull(cache.get(2));
+    assertEquals(2 * CompositeCache.levelSize(2, 3), cache.getSize());
+  }
+
+  @Test
+  public void testKeepsNewestLevelOverBudget() {
+    List<ILayer> layers = this.createLayers(2);
+    CompositeCache cache = new CompositeCache(0);
+
+    cache.put(new CompositeCache.Level(layers, 0, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 1, 2, 3));
+
+    assertNull(cache.get(0));
+    assertNotNull(cache.get(1));
+  }
+
+  @Test
+  public void testCurrentBelow() {
+    List<ILayer> layers = this.createLayers(3);
+    Rectangle canvas = new Rectangle(0, 0, 3, 2);
+    CompositeCache cache = new CompositeCache(Long.MAX_VALUE);
+    cache.put(new CompositeCache.Level(layers, 0, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 1, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 2, 2, 3));
+    assertEquals(2, cache.currentBelow(layers, 3, canvas));
+    assertEquals(1, cache.currentBelow(layers, 2, canvas));
+
+    // an edit to a layer makes every level over it out of date
+    layers.get(1).setARGB(0, 0, Raster.pack(1, 2, 3, 255));
+    assertEquals(0, cache.currentBelow(layers, 3, canvas));
+    assertFalse(cache.get(2).isCurrent(layers, canvas));
+
+    cache.get(1).record();
+    cache.get(2).record();
+    assertTrue(cache.get(2).isCurrent(layers, canvas));
+  }
+
+  @Test
+  public void testSkippedRegion() {
+    List<ILayer> layers = this.createLayers(2);
+    Rectangle canvas = new Rectangle(0, 0, 3, 2);
+    CompositeCache cache = new CompositeCache(Long.MAX_VALUE);
+    cache.put(new CompositeCache.Level(layers, 0, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 1, 2, 3));
+
+    // level 0 was skipped in its first row
+    cache.composited(0, canvas, new Rectangle[]{new Rectangle(0, 0, 3, 1), null});
+    assertEquals(1, cache.currentBelow(layers, 2, canvas));
+    assertEquals(-1, cache.currentBelow(layers, 1, canvas));
+    assertEquals(0, cache.currentBelow(layers, 1, new Rectangle(0, 1, 3, 1)));
+
+    // compositing the skipped row again makes it usable everywhere
+    cache.composited(0, new Rectangle(0, 0, 3, 1), new Rectangle[2]);
+    assertEquals(0, cache.currentBelow(layers, 1, canvas));
+  }
+
+  @Test
+  public void testRetain() {
+    List<ILayer> layers = this.createLayers(3);
+    CompositeCache cache = new CompositeCache(Long.MAX_VALUE);
+    cache.put(new CompositeCache.Level(layers, 0, 2, 3));
+    cache.put(new CompositeCache.Level(layers, 2, 2, 3));
+
+    // removing a layer drops the levels over it
+    layers.remove(1);
+    cache.retain(layers);
+
+    assertNotNull(cache.get(0));
+    assertNull(cache.get(2));
+    assertEquals(CompositeCache.levelSize(2, 3), cache.getSize());
+  }
+
+  @Test
+  public void testNegativeBudget() {
+    try {
+      new CompositeCache(-1);
+      fail("Should not be able to have a negative budget!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid cache budget!", e.getMessage());
+    }
+  }
+}
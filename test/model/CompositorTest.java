@@ -0,0 +1,187 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the Compositor class.
+ */
+public class CompositorTest {
+
+  /*
+   * Helper method that creates a layer with a few opaque and transparent colors.
+   */
+  private ILayer createLayer(String name, IFilter filter, int seed) {
+    ILayer layer = new Layer(name, 3, 4, 255);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        int value = (seed * 37 + i * 11 + j * 53) % 256;
+        int alpha = (i + j + seed) % 3 == 0 ? 0 : 255;
+        layer.setARGB(i, j, Raster.pack(value, 255 - value, (value * 7) % 256, alpha));
+      }
+    }
+    layer.setFilter(filter);
+    return layer;
+  }
+
+  @Test
+  public void testMatchesRenderedLayers() {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    layers.add(this.createLayer("background", Filter.NORMAL, 0));
+    layers.add(this.createLayer("first", Filter.BRIGHTEN, 1));
+    layers.add(this.createLayer("second", Filter.INVERT, 2));
+    layers.add(this.createLayer("third", Filter.DARKEN, 3));
+    layers.add(this.createLayer("fourth", Filter.GREEN, 4));
+
+    // filter every layer against the filtered layer below and fold them together
+    ILayer prev = layers.get(0).applyFilter(null);
+    ILayer expected = prev;
+    for (int i = 1; i < layers.size(); i++) {
+      ILayer filtered = layers.get(i).applyFilter(prev);
+      expected = filtered.combine(expected);
+      prev = filtered;
+    }
+
+    Raster actual = new Compositor(layers, 3, 4).composite();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(expected.getARGB(i, j), actual.get(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testSkipsTransparentLayers() {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    layers.add(this.createLayer("background", Filter.NORMAL, 0));
+    layers.add(new Layer("empty", 3, 4, 255));
+    layers.add(this.createLayer("first", Filter.INVERT, 1));
+    ILayer brighten = new Layer("brighten", 3, 4, 255);
+    brighten.setFilter(Filter.BRIGHTEN);
+    layers.add(brighten);
+    layers.add(new Layer("top", 3, 4, 255));
+
+    // the filtered empty layer is still what the invert filter reads
+    ILayer prev = layers.get(0).applyFilter(null);
+    ILayer expected = prev;
+    for (int i = 1; i < layers.size(); i++) {
+      ILayer filtered = layers.get(i).applyFilter(prev);
+      expected = filtered.combine(expected);
+      prev = filtered;
+    }
+
+    Raster actual = new Compositor(layers, 3, 4).composite();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(expected.getARGB(i, j), actual.get(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSerial() {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    String[] names = {"background", "first", "second", "third"};
+    IFilter[] filters = {Filter.NORMAL, Filter.INVERT, Filter.BRIGHTEN, Filter.RED};
+    for (int l = 0; l < names.length; l++) {
+      ILayer layer = new Layer(names[l], 150, 20, 255);
+      for (int i = 0; i < 150; i++) {
+        for (int j = 0; j < 20; j++) {
+          int value = (l * 31 + i * 7 + j * 13) % 256;
+          layer.setARGB(i, j, Raster.pack(value, (value * 3) % 256, 255 - value,
+                  (i + j) % 4 == 0 ? 0 : 255));
+        }
+      }
+      layer.setFilter(filters[l]);
+      layers.add(layer);
+    }
+
+    Raster serial = new Compositor(layers, 150, 20).composite();
+    Raster parallel = new Compositor(layers, 150, 20).composite(new ForkJoinPool(4));
+    assertArrayEquals(serial.getData(), parallel.getData());
+  }
+
+  @Test
+  public void testCompositeBand() {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    layers.add(this.createLayer("background", Filter.NORMAL, 0));
+    layers.add(this.createLayer("first", Filter.INVERT, 1));
+    layers.add(this.createLayer("second", Filter.DARKEN, 2));
+    Compositor compositor = new Compositor(layers, 3, 4);
+    Raster expected = compositor.composite();
+
+    // the band holds rows 1 and 2 of the canvas, and its last row is left unchanged
+    Raster band = new Raster(3, 4);
+    band.fill(Raster.pack(1, 2, 3, 4));
+    compositor.compositeBand(band, new Rectangle(0, 1, 2, 2), null);
+    compositor.compositeBand(band, new Rectangle(2, 1, 2, 2), null);
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(expected.get(i + 1, j), band.get(i, j));
+      }
+    }
+    assertEquals(Raster.pack(1, 2, 3, 4), band.get(2, 0));
+
+    try {
+      compositor.compositeBand(new Raster(1, 4), new Rectangle(0, 0, 4, 2), null);
+      fail("A band larger than its raster should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Compositor input!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSkipsLayersUnderOpaqueLayer() {
+    List<ILayer> layers = new ArrayList<ILayer>();
+    layers.add(this.createLayer("background", Filter.NORMAL, 0));
+    layers.add(this.createLayer("first", Filter.INVERT, 1));
+    ILayer photo = new Layer("photo", 3, 4, 255);
+    for (int j = 0; j < 4; j++) {
+      photo.setARGB(1, j, Raster.pack(10, 20, 30, 255));
+    }
+    photo.setFilter(Filter.RED);
+    layers.add(photo);
+    layers.add(this.createLayer("third", Filter.DARKEN, 3));
+
+    // keep every state so the skipped ones are reported
+    Raster[] composites = new Raster[4];
+    Raster[] filtered = new Raster[4];
+    for (int i = 0; i < 4; i++) {
+      composites[i] = new Raster(3, 4);
+      filtered[i] = new Raster(3, 4);
+    }
+    Rectangle[] culled = new Compositor(layers, 3, 4).composite(composites, filtered, 0,
+            new Rectangle(0, 0, 4, 3), null);
+
+    // only the row under the opaque photo is skipped
+    assertEquals(new Rectangle(0, 1, 4, 1), culled[0]);
+    assertEquals(new Rectangle(0, 1, 4, 1), culled[1]);
+    assertNull(culled[2]);
+    assertNull(culled[3]);
+
+    Raster expected = new Compositor(layers, 3, 4).composite();
+    for (int j = 0; j < 4; j++) {
+      assertEquals(Raster.pack(10, 0, 0, 255), composites[2].get(1, j));
+    }
+    assertArrayEquals(expected.getData(), composites[3].getData());
+  }
+
+  @Test
+  public void testNoLayers() {
+    try {
+      new Compositor(new ArrayList<ILayer>(), 1, 1);
+      fail("Should not be able to composite without layers!");
+    } catch (IllegalStateException e) {
+      assertEquals("There are no layers to composite!", e.getMessage());
+    }
+  }
+}
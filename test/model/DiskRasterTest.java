@@ -0,0 +1,104 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the DiskRaster class.
+ */
+public class DiskRasterTest {
+
+  @Test
+  public void testInvalidDimensions() {
+    try {
+      new DiskRaster(new TileStore(0), 0, 5, 0);
+      fail("Zero height should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster dimension!", e.getMessage());
+    }
+    try {
+      new DiskRaster(null, 5, 5, 0);
+      fail("Null store should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster input!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testMatchesTiledRaster() {
+    // the store holds fewer tiles than one row of tiles, so tiles go to the file and back
+    TileStore store = new TileStore(TileStore.tileSize(2));
+    DiskRaster disk = new DiskRaster(store, 150, 200, 42);
+    TiledRaster tiled = new TiledRaster(150, 200, 42);
+    int[] row = new int[200];
+    for (int i = 0; i < 150; i += 7) {
+      for (int j = 0; j < 200; j++) {
+        row[j] = (i * 31 + j * 17) % 5 == 0 ? 42 : i * 1000 + j;
+      }
+      disk.setRow(i, 0, 200, row);
+      tiled.setRow(i, 0, 200, row);
+    }
+    disk.set(149, 199, 5);
+    tiled.set(149, 199, 5);
+    disk.set(0, 0, 42);
+    tiled.set(0, 0, 42);
+
+    int[] expected = new int[200];
+    for (int i = 0; i < 150; i++) {
+      disk.getRow(i, row);
+      tiled.getRow(i, expected);
+      assertArrayEquals(expected, row);
+    }
+    assertEquals(tiled.get(149, 199), disk.get(149, 199));
+    assertEquals(2, store.getResident());
+
+    try {
+      disk.getRow(0, 190, 20, row);
+      fail("A span outside of the raster should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster position!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    TileStore store = new TileStore(TileStore.tileSize(1));
+    DiskRaster disk = new DiskRaster(store, 100, 100, 0);
+    disk.set(5, 5, 1);
+    disk.set(70, 70, 2);
+
+    DiskRaster copy = disk.copy();
+    copy.set(5, 5, 3);
+    disk.set(70, 70, 4);
+    assertEquals(1, disk.get(5, 5));
+    assertEquals(3, copy.get(5, 5));
+    assertEquals(4, disk.get(70, 70));
+    assertEquals(2, copy.get(70, 70));
+    assertEquals(0, copy.get(99, 0));
+  }
+
+  @Test
+  public void testCanvasGoesToDiskWithItsLayers() {
+    // two layers of 20000 bytes fit in the budget of three tiles, but a third one does not
+    CollagePPM model = new CollagePPM(1, 0, TileStore.tileSize(3));
+    model.startModel(50, 100, 255);
+    model.addLayer("second");
+    assertNull(model.getTileStore());
+    model.addLayer("third");
+    assertNotNull(model.getTileStore());
+    assertTrue(((Layer) model.getLayer("second")).getRaster() instanceof TiledRaster);
+    assertTrue(((Layer) model.getLayer("third")).getRaster() instanceof DiskRaster);
+
+    // the composites the cache may keep count as well
+    model = new CollagePPM(1, CompositeCache.levelSize(50, 100), TileStore.tileSize(3));
+    model.startModel(50, 100, 255);
+    assertNotNull(model.getTileStore());
+    assertTrue(((Layer) model.getLayer("background")).getRaster() instanceof DiskRaster);
+  }
+}
@@ -0,0 +1,154 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import javax.imageio.ImageIO;
+
+import static model.SaveTestHelper.assertSameFile;
+import static model.SaveTestHelper.createProject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test exporting images a band at a time with the ExportPipeline class.
+ * Saving an export in the background is tested with the other saves in SaveTaskTest.
+ */
+public class ExportPipelineTest {
+
+  @Test
+  public void testBandRows() {
+    assertEquals(524, ExportPipeline.bandRows(1100, 2000));
+    assertEquals(10, ExportPipeline.bandRows(10, 4));
+    assertEquals(1, ExportPipeline.bandRows(5, 1 << 22));
+  }
+
+  @Test
+  public void testMatchesSavedImage() throws IOException {
+    // the canvas is split into three bands, the last of them partly filled
+    CollagePPM model = createProject(1100, 2000);
+    File expected = File.createTempFile("expected", ".ppm");
+    File ppm = File.createTempFile("export", ".ppm");
+    File png = File.createTempFile("export", ".png");
+    try {
+      ILayer saved = model.saveImage();
+      model.writeImage(saved, expected.getPath(), true);
+      assertTrue(model.exportImage(ppm.getPath(), true));
+      assertSameFile(expected, ppm);
+
+      assertTrue(model.exportImage(png.getPath(), false));
+      BufferedImage image = ImageIO.read(png);
+      int[] row = new int[2000];
+      for (int i = 0; i < 1100; i++) {
+        saved.getRow(i, row);
+        for (int j = 0; j < 2000; j++) {
+          assertEquals(row[j], image.getRGB(j, i));
+        }
+      }
+    } finally {
+      expected.delete();
+      ppm.delete();
+      png.delete();
+    }
+  }
+
+  @Test
+  public void testPlainPPM() throws IOException {
+    CollagePPM model = createProject(7, 9);
+    File expected = File.createTempFile("expected", ".ppm");
+    File actual = File.createTempFile("export", ".ppm");
+    try {
+      model.writeImage(model.saveImage(), expected.getPath());
+      assertTrue(model.exportImage(actual.getPath(), false));
+      assertSameFile(expected, actual);
+    } finally {
+      expected.delete();
+      actual.delete();
+    }
+  }
+
+  @Test
+  public void testTileOrderExport() throws Exception {
+    CollagePPM memory = createProject(300, 500);
+    // a layer of forty tiles does not fit in the budget of thirty tiles, so the layers go to disk
+    CollagePPM disk = createProject(new CollagePPM(2, 0, TileStore.tileSize(30)), 300, 500);
+    TileStore store = disk.getTileStore();
+    assertNull(memory.getTileStore());
+    assertNotNull(store);
+    assertTrue(store.getWrites() > 0);
+
+    File expected = File.createTempFile("expected", ".ppm");
+    File actual = File.createTempFile("export", ".ppm");
+    try {
+      memory.exportImage(expected.getPath(), true);
+      long reads = store.getReads();
+      disk.exportImage(actual.getPath(), true);
+      assertSameFile(expected, actual);
+      // each of the forty tiles of the three layers is read from the file at most once
+      assertTrue(store.getReads() - reads <= 3 * 40);
+
+      // a copy taken for a save in the background shares the tiles on disk
+      disk.exportImageAsync(actual.getPath(), true, new SaveTestHelper.RecordingListener()).get();
+      assertSameFile(expected, actual);
+    } finally {
+      expected.delete();
+      actual.delete();
+    }
+  }
+
+  @Test
+  public void testInterruptedExportKeepsTiles() throws Exception {
+    CollagePPM memory = createProject(300, 500);
+    // the export composites on the interrupted thread, which reads the tiles from the file
+    CollagePPM disk = createProject(new CollagePPM(1, 0, TileStore.tileSize(30)), 300, 500);
+    assertTrue(disk.getTileStore().getWrites() > 0);
+
+    File file = File.createTempFile("export", ".ppm");
+    try {
+      Thread.currentThread().interrupt();
+      try {
+        disk.exportImage(file.getPath(), true);
+        fail("An interrupted export should not finish!");
+      } catch (InterruptedIOException e) {
+        assertEquals("Saving " + file.getPath() + " was cancelled.", e.getMessage());
+      } finally {
+        Thread.interrupted();
+      }
+    } finally {
+      file.delete();
+    }
+
+    // the layers of the canvas can still be read from the file
+    for (String name : new String[]{"background", "first", "second"}) {
+      for (int i = 0; i < 300; i++) {
+        for (int j = 0; j < 500; j++) {
+          assertEquals(memory.getLayer(name).getARGB(i, j), disk.getLayer(name).getARGB(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFailedExport() {
+    CollagePPM model = createProject(5, 5);
+    try {
+      model.exportImage("missing/dir/image.png", false);
+      fail("An export to a missing directory should fail!");
+    } catch (IOException e) {
+      assertEquals("Error in writing png image file.", e.getMessage());
+    }
+    try {
+      model.exportImage("image.bmp", false);
+      fail("Unsupported extension should throw an error!");
+    } catch (IllegalArgumentException | IOException e) {
+      assertEquals("File extension is not supported.", e.getMessage());
+    }
+  }
+}
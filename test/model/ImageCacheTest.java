@@ -0,0 +1,128 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the ImageCache class.
+ */
+public class ImageCacheTest {
+
+  @Test
+  public void testInvalidBudget() {
+    try {
+      new ImageCache(-1);
+      fail("Negative budget should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid cache budget!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    ImageCache cache = new ImageCache(2 * ImageCache.imageSize(2, 3));
+    ImageCache.Key a = new ImageCache.Key("a", 1, 1);
+    ImageCache.Key b = new ImageCache.Key("b", 1, 1);
+    ImageCache.Key c = new ImageCache.Key("c", 1, 1);
+
+    cache.put(a, new Raster(2, 3));
+    cache.put(b, new Raster(2, 3));
+    cache.get(a);
+    cache.put(c, new Raster(2, 3));
+
+    assertNotNull(cache.get(a));
+    assertNull(cache.get(b));
+    assertNotNull(cache.get(c));
+    assertEquals(2 * ImageCache.imageSize(2, 3), cache.getSize());
+  }
+
+  @Test
+  public void testSkipsImagesOverBudget() {
+    ImageCache cache = new ImageCache(ImageCache.imageSize(2, 3));
+    ImageCache.Key a = new ImageCache.Key("a", 1, 1);
+    ImageCache.Key b = new ImageCache.Key("b", 1, 1);
+
+    cache.put(a, new Raster(2, 3));
+    cache.put(b, new Raster(3, 3));
+
+    assertNotNull(cache.get(a));
+    assertNull(cache.get(b));
+    assertEquals(ImageCache.imageSize(2, 3), cache.getSize());
+  }
+
+  @Test
+  public void testChangedFileIsMissed() {
+    ImageCache cache = new ImageCache(ImageCache.imageSize(2, 3));
+    Raster raster = new Raster(2, 3);
+    cache.put(new ImageCache.Key("a", 10, 5), raster);
+
+    assertSame(raster, cache.get(new ImageCache.Key("a", 10, 5)));
+    assertNull(cache.get(new ImageCache.Key("a", 10, 6)));
+    // the image of the old file is dropped
+    assertNull(cache.get(new ImageCache.Key("a", 10, 5)));
+    assertEquals(0, cache.getSize());
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  /*
+   * Helper method that writes a plain PPM file of one color.
+   */
+  private void writePPM(File file, int height, int width, int r, int g, int b)
+          throws IOException {
+    try (FileWriter out = new FileWriter(file)) {
+      out.write("P3\n" + width + " " + height + "\n255\n");
+      for (int i = 0; i < height * width; i++) {
+        out.write(r + " " + g + " " + b + "\n");
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedPlacementsAreCached() throws IOException {
+    File file = File.createTempFile("logo", ".ppm");
+    try {
+      this.writePPM(file, 2, 3, 10, 20, 30);
+      CollagePPM model = new CollagePPM(1);
+      model.startModel(4, 4, 255);
+      ILayer layer = model.getLayer("background");
+
+      model.addImageToLayer(layer, file.getPath(), 0, 0);
+      model.addImageToLayer(layer, file.getPath(), 2, 1);
+      // a placement that only partly lands on the layer uses the whole cached image
+      model.addImageToLayer(layer, file.getPath(), -1, 3);
+      assertEquals(1, model.getImageCache().getMisses());
+      assertEquals(2, model.getImageCache().getHits());
+      assertEquals(Raster.pack(10, 20, 30, 255), ((Layer) layer).getRaster().get(3, 3));
+      assertEquals(Raster.pack(10, 20, 30, 255), ((Layer) layer).getRaster().get(0, 3));
+
+      // a changed file is decoded again
+      this.writePPM(file, 2, 3, 40, 50, 60);
+      file.setLastModified(file.lastModified() + 2000);
+      model.addImageToLayer(layer, file.getPath(), 0, 0);
+      assertEquals(2, model.getImageCache().getMisses());
+      assertEquals(Raster.pack(40, 50, 60, 255), ((Layer) layer).getRaster().get(0, 0));
+
+      // the models of projects read by the model share its cache
+      File project = File.createTempFile("project", ".collage");
+      try {
+        model.writeProject(model, project.getPath());
+        CollagePPM read = (CollagePPM) model.readProject(project.getPath());
+        assertSame(model.getImageCache(), read.getImageCache());
+      } finally {
+        project.delete();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -5,6 +5,8 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * A test class to test the Layer class.
@@ -184,4 +186,57 @@ public class LayerTest {
     assertEquals(1, this.l1.getImages().size());
   }
 
+  @Test
+  public void testIsOpaque() {
+    this.l1 = new Layer("first", 3, 100, 255);
+    assertFalse(this.l1.isOpaque(0, 0, 100));
+
+    // an opaque image over the first two rows
+    Raster raster = new Raster(2, 100);
+    raster.fill(Raster.pack(1, 2, 3, 255));
+    this.l1.addImage(new Image(raster, 255, new Posn(0, 0)));
+    assertTrue(this.l1.isOpaque(0, 0, 100));
+    assertTrue(this.l1.isOpaque(1, 70, 30));
+    assertFalse(this.l1.isOpaque(2, 0, 100));
+
+    // one translucent color makes its span not opaque
+    this.l1.setARGB(1, 80, Raster.pack(1, 2, 3, 254));
+    assertTrue(this.l1.isOpaque(1, 0, 64));
+    assertFalse(this.l1.isOpaque(1, 64, 36));
+    this.l1.setARGB(1, 80, Raster.pack(1, 2, 3, 255));
+    assertTrue(this.l1.isOpaque(1, 64, 36));
+  }
+
+  @Test
+  public void testIsTransparent() {
+    this.l1 = new Layer("first", 3, 100, 255);
+    assertTrue(this.l1.isTransparent(0, 0, 100));
+
+    this.l1.setARGB(2, 10, Raster.pack(1, 2, 3, 1));
+    assertFalse(this.l1.isTransparent(2, 0, 64));
+    assertTrue(this.l1.isTransparent(2, 64, 36));
+    assertTrue(this.l1.isTransparent(1, 0, 100));
+
+    this.l1.setRow(2, new int[100]);
+    assertTrue(this.l1.isTransparent(2, 0, 100));
+  }
+
+  @Test
+  public void testOneColor() {
+    int white = Raster.pack(255, 255, 255, 255);
+    this.l1 = new Layer("background", 3, 100, 255, white);
+    assertEquals(white, this.l1.getARGB(2, 99));
+    assertEquals("255 255 255 255", this.l1.getPixel(new Posn(0, 0)).rgbaString());
+    assertTrue(this.l1.isOpaque(0, 0, 100));
+    assertFalse(this.l1.isTransparent(0, 0, 100));
+
+    // drawing on the layer only changes the span that was drawn on
+    this.l1.setARGB(1, 70, Raster.pack(0, 0, 0, 0));
+    assertEquals(Raster.pack(0, 0, 0, 0), this.l1.getARGB(1, 70));
+    assertEquals(white, this.l1.getARGB(1, 71));
+    assertTrue(this.l1.isOpaque(1, 0, 64));
+    assertFalse(this.l1.isOpaque(1, 64, 36));
+    assertTrue(this.l1.isOpaque(2, 0, 100));
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the ProjectFile class.
+ */
+public class ProjectFileTest {
+
+  /*
+   * Helper method that creates a project with a layer of noise and a mostly transparent layer.
+   */
+  private CollageModel createProject() {
+    CollageModel model = new CollagePPM(1);
+    model.startModel(30, 70, 255);
+    Random random = new Random(7);
+    ILayer background = model.getLayer("background");
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 70; j++) {
+        background.setARGB(i, j, random.nextInt());
+      }
+    }
+    model.addLayer("top");
+    model.getLayer("top").setARGB(12, 65, Raster.pack(10, 20, 30, 40));
+    model.setFilter("top", Filter.INVERT);
+    return model;
+  }
+
+  /*
+   * Helper method that reads the entries of the table of contents of a project file.
+   */
+  private int[] readCompressions(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      in.skipBytes(2 + 4 * 4);
+      int[] compressions = new int[in.readInt()];
+      for (int k = 0; k < compressions.length; k++) {
+        in.readUTF();
+        in.readUTF();
+        in.readLong();
+        in.readLong();
+        compressions[k] = in.readByte();
+      }
+      return compressions;
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      assertTrue(ProjectFile.isProjectFile(file.getPath()));
+
+      // the noise does not deflate, so it is stored raw
+      int[] compressions = this.readCompressions(file);
+      assertEquals(ProjectFile.RAW, compressions[0]);
+      assertEquals(ProjectFile.DEFLATE, compressions[1]);
+
+      CollageModel read = model.readProject(file.getPath());
+      assertEquals(30, read.getHeight());
+      assertEquals(70, read.getWidth());
+      assertEquals(255, read.getMax());
+      // the stored layers are written, so the layers render the same after they are read
+      assertEquals(2, read.getLayers().size());
+      for (ILayer layer : model.getLayers()) {
+        ILayer actual = read.getLayer(layer.getName());
+        assertEquals(layer.getFilter(), actual.getFilter());
+        for (int i = 0; i < 30; i++) {
+          for (int j = 0; j < 70; j++) {
+            assertEquals(layer.getARGB(i, j), actual.getARGB(i, j));
+          }
+        }
+      }
+      List<ILayer> expected = model.renderLayers();
+      List<ILayer> rendered = read.renderLayers();
+      for (int k = 0; k < expected.size(); k++) {
+        assertEquals(expected.get(k).getARGB(12, 65), rendered.get(k).getARGB(12, 65));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testParallelDecode() throws IOException {
+    CollageModel model = this.createProject();
+    model.addLayer("third");
+    model.getLayer("third").setARGB(29, 0, Raster.pack(200, 100, 0, 255));
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      CollageModel serial = new CollagePPM(1).readProject(file.getPath(), false);
+      CollageModel parallel = new CollagePPM(3).readProject(file.getPath(), false);
+
+      // the layers are in the same order however they are decoded
+      List<ILayer> expected = serial.renderLayers();
+      List<ILayer> actual = parallel.renderLayers();
+      assertEquals(3, actual.size());
+      for (int k = 0; k < 3; k++) {
+        assertEquals(expected.get(k).getName(), actual.get(k).getName());
+        for (int i = 0; i < 30; i++) {
+          for (int j = 0; j < 70; j++) {
+            assertEquals(expected.get(k).getARGB(i, j), actual.get(k).getARGB(i, j));
+          }
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPlainProjectFile() throws IOException {
+    assertFalse(ProjectFile.isProjectFile("res/blueSunset.collage"));
+    CollageModel model = new CollagePPM(1).readProject("res/blueSunset.collage");
+    assertTrue(model.getWidth() > 0);
+  }
+
+  @Test
+  public void testUnsupportedVersion() throws IOException {
+    File file = File.createTempFile("project", ".collage");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+        out.writeBytes("C2");
+        out.writeInt(ProjectFile.VERSION + 1);
+      }
+      new CollagePPM(1).readProject(file.getPath());
+      fail("Should not be able to read a newer project file!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Unsupported project file version!", e.getMessage());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testLazyLayers() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      CollageModel lazy = model.readProject(file.getPath(), true);
+      CollageModel eager = model.readProject(file.getPath(), false);
+
+      // replacing the file does not change the layers that are mapped from it
+      model.getLayer("top").setARGB(0, 0, Raster.pack(1, 1, 1, 255));
+      model.writeProject(model, file.getPath());
+      for (int i = 0; i < 30; i++) {
+        for (int j = 0; j < 70; j++) {
+          assertEquals(eager.getLayer("top").getARGB(i, j), lazy.getLayer("top").getARGB(i, j));
+        }
+      }
+      assertEquals(eager.saveImage().getARGB(12, 65), lazy.saveImage().getARGB(12, 65));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSaveOverReadFile() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      CollageModel read = model.readProject(file.getPath());
+
+      // no layer refers to the file, so the project can replace it on any system
+      for (ILayer layer : read.getLayers()) {
+        assertFalse(((Layer) layer).getRaster() instanceof MappedRaster);
+      }
+      read.getLayer("top").setARGB(0, 0, Raster.pack(1, 2, 3, 255));
+      ProjectFile.write(read, file.getPath(), false, Progress.NONE);
+      CollageModel saved = model.readProject(file.getPath());
+      assertEquals(Raster.pack(1, 2, 3, 255), saved.getLayer("top").getARGB(0, 0));
+      for (int i = 0; i < 30; i++) {
+        for (int j = 0; j < 70; j++) {
+          assertEquals(model.getLayer("background").getARGB(i, j),
+                  saved.getLayer("background").getARGB(i, j));
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testOutOfCoreProject() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      // only the first layer fits in the budget of one tile, so the second is read onto disk
+      CollagePPM disk = new CollagePPM(1, 0, TileStore.tileSize(1));
+      for (boolean lazy : new boolean[]{false, true}) {
+        CollagePPM read = (CollagePPM) disk.readProject(file.getPath(), lazy);
+        IRaster top = ((Layer) read.getLayer("top")).getRaster();
+        if (lazy) {
+          top = ((MappedRaster) top).load();
+        }
+        assertTrue(top instanceof DiskRaster);
+        assertSame(read.getTileStore(), ((DiskRaster) top).getStore());
+        for (ILayer layer : model.getLayers()) {
+          for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 70; j++) {
+              assertEquals(layer.getARGB(i, j), read.getLayer(layer.getName()).getARGB(i, j));
+            }
+          }
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPreview() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      assertEquals(null, model.readProjectPreview(file.getPath()));
+
+      model.writeProject(model, file.getPath(), true);
+      IListOfPixel preview = model.readProjectPreview(file.getPath());
+      ILayer expected = model.saveImage();
+      for (int i = 0; i < 30; i++) {
+        for (int j = 0; j < 70; j++) {
+          assertEquals(expected.getARGB(i, j), preview.getARGB(i, j));
+        }
+      }
+      // the preview does not change the layers of the project
+      assertEquals(2, model.readProject(file.getPath()).getLayers().size());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testMappedLayersAreCopied() throws IOException {
+    CollageModel model = this.createProject();
+    File file = File.createTempFile("project", ".collage");
+    File copy = File.createTempFile("copy", ".collage");
+    try {
+      model.writeProject(model, file.getPath());
+      CollageModel lazy = model.readProject(file.getPath(), true);
+      lazy.writeProject(lazy, copy.getPath());
+
+      // the payloads are copied without decoding the layers
+      for (ILayer layer : lazy.getLayers()) {
+        assertFalse(((MappedRaster) ((Layer) layer).getRaster()).isLoaded());
+      }
+      assertEquals(file.length(), copy.length());
+      CollageModel read = model.readProject(copy.getPath());
+      for (int i = 0; i < 30; i++) {
+        for (int j = 0; j < 70; j++) {
+          assertEquals(model.getLayer("background").getARGB(i, j),
+                  read.getLayer("background").getARGB(i, j));
+        }
+      }
+    } finally {
+      file.delete();
+      copy.delete();
+    }
+  }
+
+  @Test
+  public void testFileLayout() throws IOException {
+    File file = File.createTempFile("project", ".collage");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+        out.writeBytes("C2");
+        out.writeInt(ProjectFile.VERSION);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeInt(255);
+        out.writeInt(1);
+        out.writeUTF("background");
+        out.writeUTF("normal");
+        // the header, table of contents and preview flag take 60 bytes
+        out.writeLong(60);
+        out.writeLong(4);
+        out.writeByte(ProjectFile.RAW);
+        out.writeByte(0);
+        out.write(new byte[]{10, 20, 30, (byte) 255});
+      }
+      CollageModel read = new CollagePPM(1).readProject(file.getPath());
+      assertEquals(Raster.pack(10, 20, 30, 255), read.getLayer("background").getARGB(0, 0));
+      assertEquals(null, read.readProjectPreview(file.getPath()));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testMappedRaster() {
+    ByteBuffer payload = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    MappedRaster raster = new MappedRaster(new TiledRaster(1, 2, 0), payload,
+            ProjectFile.RAW);
+    assertFalse(raster.isLoaded());
+    assertEquals(2, raster.getWidth());
+    assertFalse(raster.isLoaded());
+
+    assertEquals(Raster.pack(5, 6, 7, 8), raster.get(0, 1));
+    assertTrue(raster.isLoaded());
+    raster.set(0, 0, 9);
+    assertEquals(9, raster.get(0, 0));
+  }
+}
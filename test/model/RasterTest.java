@@ -0,0 +1,97 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the Raster class.
+ */
+public class RasterTest {
+  Raster r1;
+
+  @Test
+  public void testInvalidConstruction() {
+    try {
+      this.r1 = new Raster(0, 4);
+      fail("Should not be able to create a raster with no rows!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster dimension!", e.getMessage());
+    }
+
+    try {
+      this.r1 = new Raster(2, 2, new int[3]);
+      fail("Should not be able to wrap an array that is too short!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster dimension!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPackAndUnpack() {
+    int argb = Raster.pack(12, 34, 56, 78);
+    assertEquals(12, Raster.red(argb));
+    assertEquals(34, Raster.green(argb));
+    assertEquals(56, Raster.blue(argb));
+    assertEquals(78, Raster.alpha(argb));
+    assertArrayEquals(new int[]{12, 34, 56, 78}, Raster.unpack(argb));
+
+    // channels are clamped to one byte
+    assertArrayEquals(new int[]{255, 0, 255, 255}, Raster.unpack(Raster.pack(300, -1, 255, 256)));
+  }
+
+  @Test
+  public void testGetSet() {
+    this.r1 = new Raster(2, 3);
+    this.r1.set(1, 2, Raster.pack(1, 2, 3, 4));
+    assertEquals(Raster.pack(1, 2, 3, 4), this.r1.get(1, 2));
+    assertEquals(0, this.r1.get(0, 0));
+
+    try {
+      this.r1.get(2, 0);
+      fail("Should not be able to read outside of the raster!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster position!", e.getMessage());
+    }
+
+    try {
+      this.r1.set(0, -1, 0);
+      fail("Should not be able to write outside of the raster!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster position!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRows() {
+    this.r1 = new Raster(2, 3);
+    this.r1.setRow(1, new int[]{7, 8, 9});
+
+    int[] row = new int[3];
+    this.r1.getRow(1, row);
+    assertArrayEquals(new int[]{7, 8, 9}, row);
+    this.r1.getRow(0, row);
+    assertArrayEquals(new int[]{0, 0, 0}, row);
+
+    try {
+      this.r1.getRow(0, new int[2]);
+      fail("Should not be able to copy into a short buffer!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid row buffer!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testFillAndCopy() {
+    this.r1 = new Raster(2, 2);
+    this.r1.fill(5);
+    Raster copy = this.r1.copy();
+    this.r1.set(0, 0, 6);
+
+    assertEquals(6, this.r1.get(0, 0));
+    assertEquals(5, copy.get(0, 0));
+    assertEquals(5, copy.get(1, 1));
+  }
+}
@@ -0,0 +1,176 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static model.SaveTestHelper.assertSameFile;
+import static model.SaveTestHelper.createProject;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test saving files in the background with the SaveTask class.
+ */
+public class SaveTaskTest {
+
+  @Test
+  public void testWriteImageAsync() throws Exception {
+    CollagePPM model = createProject(40, 30);
+    File sync = File.createTempFile("sync", ".ppm");
+    File async = File.createTempFile("async", ".ppm");
+    try {
+      model.writeImage(model.saveImage(), sync.getPath(), true);
+      SaveTestHelper.RecordingListener listener = new SaveTestHelper.RecordingListener();
+      model.writeImageAsync(model.saveImage(), async.getPath(), true, listener).get();
+
+      assertSameFile(sync, async);
+      assertEquals(List.of("saved"), listener.events);
+      assertEquals(1.0, listener.fractions.get(listener.fractions.size() - 1), 0);
+    } finally {
+      sync.delete();
+      async.delete();
+    }
+  }
+
+  @Test
+  public void testUnsupportedExtension() {
+    CollagePPM model = createProject(40, 30);
+    try {
+      model.writeImageAsync(model.saveImage(), "image.bmp", false,
+              new SaveTestHelper.RecordingListener());
+      fail("Unsupported extension should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("File extension is not supported.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testExportIsSnapshot() throws Exception {
+    CollagePPM model = createProject(20, 30);
+    File expected = File.createTempFile("expected", ".ppm");
+    File actual = File.createTempFile("export", ".ppm");
+    try {
+      model.writeImage(model.saveImage(), expected.getPath(), true);
+      SaveTestHelper.RecordingListener listener = new SaveTestHelper.RecordingListener();
+      Future<?> save = model.exportImageAsync(actual.getPath(), true, listener);
+      // changes made while the image is exported are not in the file
+      model.getLayer("second").setARGB(0, 0, Raster.pack(1, 2, 3, 255));
+      save.get();
+
+      assertEquals(List.of("saved"), listener.events);
+      assertSameFile(expected, actual);
+    } finally {
+      expected.delete();
+      actual.delete();
+    }
+  }
+
+  @Test
+  public void testProjectIsSnapshot() throws Exception {
+    CollagePPM model = createProject(40, 30);
+    int color = model.getLayer("first").getARGB(0, 0);
+    int flattened = model.saveImage().getARGB(0, 0);
+    File file = File.createTempFile("project", ".collage");
+    try {
+      SaveTestHelper.RecordingListener listener = new SaveTestHelper.RecordingListener();
+      Future<?> save = model.writeProjectAsync(model, file.getPath(), true, listener);
+      // changes made while the project is saved are not in the file
+      model.getLayer("first").setARGB(0, 0, Raster.pack(9, 9, 9, 255));
+      model.addLayer("later");
+      save.get();
+
+      assertEquals(List.of("saved"), listener.events);
+      CollageModel read = model.readProject(file.getPath());
+      assertEquals(3, read.getLayers().size());
+      assertEquals(color, read.getLayer("first").getARGB(0, 0));
+      assertEquals(flattened, model.readProjectPreview(file.getPath()).getARGB(0, 0));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    CollagePPM model = createProject(300, 40);
+    Path dir = Files.createTempDirectory("saves");
+    File image = dir.resolve("image.png").toFile();
+    File project = dir.resolve("project.collage").toFile();
+    try {
+      // a cancelled export deletes the partly written image
+      this.cancelWhileSaving(listener -> model.exportImageAsync(image.getPath(), false,
+              listener));
+      assertFalse(image.exists());
+
+      // a cancelled project save leaves the project file as it was
+      model.writeProject(model, project.getPath());
+      byte[] saved = Files.readAllBytes(project.toPath());
+      model.addLayer("later");
+      this.cancelWhileSaving(listener -> model.writeProjectAsync(model, project.getPath(), false,
+              listener));
+      assertArrayEquals(saved, Files.readAllBytes(project.toPath()));
+      assertEquals(1, dir.toFile().list().length);
+    } finally {
+      for (File f : dir.toFile().listFiles()) {
+        f.delete();
+      }
+      Files.delete(dir);
+    }
+  }
+
+  /*
+   * Helper method that starts a save which waits in its first progress report until it has been
+   * cancelled, cancels it, and checks that waiting for it returns once it has been reported as
+   * cancelled, which is only once its thread has stopped writing.
+   */
+  private void cancelWhileSaving(Function<SaveListener, Future<?>> start) throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    SaveTestHelper.RecordingListener listener = new SaveTestHelper.RecordingListener() {
+      @Override
+      public void progress(String filename, double fraction) {
+        started.countDown();
+        try {
+          resume.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    Future<?> save = start.apply(listener);
+    started.await();
+    save.cancel(true);
+    resume.countDown();
+    try {
+      save.get();
+      fail("A cancelled save should not finish!");
+    } catch (CancellationException e) {
+      assertEquals(List.of("cancelled"), listener.events);
+    }
+  }
+
+  @Test
+  public void testFailedSave() throws Exception {
+    CollagePPM model = createProject(40, 30);
+    SaveTestHelper.RecordingListener listener = new SaveTestHelper.RecordingListener();
+    try {
+      model.writeImageAsync(model.saveImage(), "missing/dir/image.ppm", false, listener).get();
+      fail("A save to a missing directory should fail!");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+      assertEquals(List.of("failed Error in writing ppm image file."), listener.events);
+    }
+  }
+}
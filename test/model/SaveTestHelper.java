@@ -0,0 +1,96 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * A class of the fixtures shared by the tests of saving images and projects.
+ */
+final class SaveTestHelper {
+
+  /**
+   * A listener that records every callback it is given.
+   */
+  static class RecordingListener implements SaveListener {
+    final List<String> events = new ArrayList<String>();
+    final List<Double> fractions = new ArrayList<Double>();
+
+    @Override
+    public synchronized void progress(String filename, double fraction) {
+      this.fractions.add(fraction);
+    }
+
+    @Override
+    public synchronized void saved(String filename) {
+      this.events.add("saved");
+    }
+
+    @Override
+    public synchronized void failed(String filename, Exception e) {
+      this.events.add("failed " + e.getMessage());
+    }
+
+    @Override
+    public synchronized void cancelled(String filename) {
+      this.events.add("cancelled");
+    }
+  }
+
+  private SaveTestHelper() {
+  }
+
+  /**
+   * Creates a project of the given size with filtered, partly transparent layers.
+   *
+   * @param height - the height of the project
+   * @param width  - the width of the project
+   * @return - the project
+   */
+  static CollagePPM createProject(int height, int width) {
+    return createProject(new CollagePPM(2), height, width);
+  }
+
+  /**
+   * Draws a project of the given size with the given model: a background and the layers
+   * "first", which is inverted, and "second", which is brightened.
+   *
+   * @param model  - the model to draw on
+   * @param height - the height of the project
+   * @param width  - the width of the project
+   * @return - the model
+   */
+  static CollagePPM createProject(CollagePPM model, int height, int width) {
+    model.startModel(height, width, 255);
+    model.addLayer("first");
+    model.addLayer("second");
+    String[] names = {"background", "first", "second"};
+    for (int l = 0; l < names.length; l++) {
+      ILayer layer = model.getLayer(names[l]);
+      for (int i = 0; i < height; i += 3) {
+        for (int j = (i + l) % 5; j < width; j += 2) {
+          int value = (l * 31 + i * 7 + j * 13) % 256;
+          layer.setARGB(i, j, Raster.pack(value, (value * 3) % 256, 255 - value, 255));
+        }
+      }
+    }
+    model.setFilter("first", Filter.INVERT);
+    model.setFilter("second", Filter.BRIGHTEN);
+    return model;
+  }
+
+  /**
+   * Checks that two files have the same bytes.
+   *
+   * @param expected - the file with the expected bytes
+   * @param actual   - the file to check
+   * @throws IOException - when either file could not be read
+   */
+  static void assertSameFile(File expected, File actual) throws IOException {
+    assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+  }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the TileStore class.
+ */
+public class TileStoreTest {
+  private static final int TILE = TileStore.TILE;
+
+  @Test
+  public void testInvalidBudget() {
+    try {
+      new TileStore(-1);
+      fail("Negative budget should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid tile budget!", e.getMessage());
+    }
+    // the store always holds at least one tile
+    assertEquals(1, new TileStore(0).getCapacity());
+    assertEquals(3, new TileStore(TileStore.tileSize(3)).getCapacity());
+  }
+
+  @Test
+  public void testTilesAreCreatedWhenDrawnOn() {
+    TileStore store = new TileStore(TileStore.tileSize(4));
+    Object owner = new Object();
+    int raster = store.register(owner, 6, 7);
+
+    assertEquals(7, store.get(raster, 2, 10));
+    int[] colors = new int[3];
+    store.getColors(raster, 2, 0, colors, 0, 3);
+    assertEquals(7, colors[2]);
+    assertFalse(store.isCreated(raster, 2));
+    assertEquals(0, store.getResident());
+
+    store.set(raster, 2, 10, 9);
+    assertTrue(store.isCreated(raster, 2));
+    assertEquals(9, store.get(raster, 2, 10));
+    assertEquals(7, store.get(raster, 2, 11));
+    assertEquals(1, store.getResident());
+  }
+
+  @Test
+  public void testEvictsToScratchFile() {
+    TileStore store = new TileStore(TileStore.tileSize(2));
+    Object owner = new Object();
+    int raster = store.register(owner, 5, 0);
+    for (int t = 0; t < 5; t++) {
+      store.set(raster, t, t, t + 1);
+    }
+    // only the two most recent tiles are in memory, and the rest were written once
+    assertEquals(2, store.getResident());
+    assertEquals(3, store.getWrites());
+    assertEquals(0, store.getReads());
+
+    for (int t = 0; t < 5; t++) {
+      assertEquals(t + 1, store.get(raster, t, t));
+      assertEquals(0, store.get(raster, t, TILE * TILE - 1));
+    }
+    // reading the first tiles back evicts the last two, which are read back in turn
+    assertEquals(5, store.getReads());
+    // the tiles read back had not changed, so only the two evicted dirty tiles were written
+    assertEquals(5, store.getWrites());
+  }
+
+  @Test
+  public void testCopiesShareTiles() {
+    TileStore store = new TileStore(TileStore.tileSize(1));
+    Object owner = new Object();
+    int raster = store.register(owner, 3, 0);
+    store.set(raster, 0, 0, 1);
+    store.set(raster, 1, 0, 2);
+
+    Object copyOwner = new Object();
+    int copy = store.copy(copyOwner, raster);
+    assertTrue(store.isCreated(copy, 1));
+    assertFalse(store.isCreated(copy, 2));
+
+    // a change to either raster is not seen by the other
+    store.set(copy, 0, 0, 3);
+    store.set(raster, 1, 0, 4);
+    store.set(raster, 2, 0, 5);
+    assertEquals(1, store.get(raster, 0, 0));
+    assertEquals(4, store.get(raster, 1, 0));
+    assertEquals(5, store.get(raster, 2, 0));
+    assertEquals(3, store.get(copy, 0, 0));
+    assertEquals(2, store.get(copy, 1, 0));
+    assertEquals(0, store.get(copy, 2, 0));
+  }
+
+  @Test
+  public void testInterruptKeepsScratchFile() {
+    TileStore store = new TileStore(TileStore.tileSize(1));
+    Object owner = new Object();
+    int raster = store.register(owner, 3, 0);
+    store.set(raster, 0, 0, 1);
+    store.set(raster, 1, 0, 2);
+
+    // a thread that was interrupted, such as a cancelled save, still reads and writes tiles
+    Thread.currentThread().interrupt();
+    try {
+      store.set(raster, 2, 0, 3);
+      assertEquals(1, store.get(raster, 0, 0));
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+
+    // and the file is still there for the threads that were not interrupted
+    assertEquals(2, store.get(raster, 1, 0));
+    assertEquals(3, store.get(raster, 2, 0));
+    assertEquals(1, store.get(raster, 0, 0));
+  }
+
+  @Test
+  public void testInterruptsDuringTransfers() throws InterruptedException {
+    TileStore store = new TileStore(TileStore.tileSize(1));
+    Object owner = new Object();
+    int raster = store.register(owner, 2, 0);
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    // every use of a tile evicts the other one, so each is written to the file and read back
+    // while the thread is interrupted over and over
+    Thread user = new Thread(() -> {
+      try {
+        for (int i = 0; i < 2000; i++) {
+          store.set(raster, i % 2, 1, i);
+          assertEquals(i, store.get(raster, i % 2, 1));
+          if (i > 0) {
+            assertEquals(i - 1, store.get(raster, (i - 1) % 2, 1));
+          }
+        }
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    });
+    user.start();
+    while (user.isAlive()) {
+      user.interrupt();
+      Thread.yield();
+    }
+    user.join();
+    assertNull(failure.get());
+    assertTrue(store.getReads() > 0);
+  }
+
+  @Test
+  public void testConcurrentReaders() throws InterruptedException {
+    TileStore store = new TileStore(TileStore.tileSize(6));
+    Object owner = new Object();
+    int raster = store.register(owner, 16, 0);
+    for (int tile = 0; tile < 16; tile++) {
+      store.set(raster, tile, 5, tile + 1);
+    }
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    // readers of different tiles evict each other's tiles and read them back at the same time
+    Thread[] readers = new Thread[4];
+    for (int r = 0; r < readers.length; r++) {
+      int first = r;
+      readers[r] = new Thread(() -> {
+        try {
+          int[] colors = new int[TILE];
+          for (int i = 0; i < 500; i++) {
+            int tile = (first + i * 3) % 16;
+            assertEquals(tile + 1, store.get(raster, tile, 5));
+            store.getColors(raster, tile, 0, colors, 0, TILE);
+            assertEquals(tile + 1, colors[5]);
+          }
+        } catch (Throwable e) {
+          failure.set(e);
+        }
+      });
+      readers[r].start();
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(failure.get());
+    assertTrue(store.getReads() > 0);
+    assertTrue(store.getResident() <= store.getCapacity());
+  }
+}
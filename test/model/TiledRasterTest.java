@@ -0,0 +1,120 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the TiledRaster class.
+ */
+public class TiledRasterTest {
+  TiledRaster r1;
+
+  @Test
+  public void testInvalidConstruction() {
+    try {
+      this.r1 = new TiledRaster(3, 0, 0);
+      fail("Should not be able to create a raster with no columns!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster dimension!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetSet() {
+    int white = Raster.pack(255, 255, 255, 0);
+    this.r1 = new TiledRaster(100, 200, white);
+    assertEquals(white, this.r1.get(99, 199));
+    assertEquals(0, this.r1.getTileCount());
+
+    // setting the color of the raster does not create a tile
+    this.r1.set(5, 5, white);
+    assertEquals(0, this.r1.getTileCount());
+
+    this.r1.set(70, 130, Raster.pack(1, 2, 3, 4));
+    assertEquals(Raster.pack(1, 2, 3, 4), this.r1.get(70, 130));
+    assertEquals(white, this.r1.get(70, 129));
+    assertEquals(1, this.r1.getTileCount());
+
+    try {
+      this.r1.get(100, 0);
+      fail("Should not be able to read outside of the raster!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid Raster position!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRows() {
+    this.r1 = new TiledRaster(2, 150, 7);
+    int[] row = new int[150];
+    for (int j = 0; j < 150; j++) {
+      row[j] = j % 3 == 0 ? 7 : j;
+    }
+
+    // only the tiles that are not all the color of the raster are created
+    int[] src = new int[150];
+    System.arraycopy(row, 60, src, 60, 10);
+    this.r1.setRow(1, 60, 10, src);
+    assertEquals(2, this.r1.getTileCount());
+    int[] color = new int[150];
+    Arrays.fill(color, 7);
+    this.r1.setRow(0, 128, 22, color);
+    assertEquals(2, this.r1.getTileCount());
+
+    this.r1.setRow(0, row);
+    int[] copy = new int[150];
+    this.r1.getRow(0, copy);
+    assertArrayEquals(row, copy);
+    assertEquals(3, this.r1.getTileCount());
+
+    int[] part = new int[150];
+    this.r1.getRow(1, 50, 30, part);
+    for (int j = 50; j < 80; j++) {
+      assertEquals(j >= 60 && j < 70 ? row[j] : 7, part[j]);
+    }
+
+    try {
+      this.r1.getRow(0, new int[149]);
+      fail("Should not be able to copy into a short row!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid row buffer!", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testCopyIsCopyOnWrite() {
+    this.r1 = new TiledRaster(100, 150, 7);
+    this.r1.set(0, 0, 1);
+    this.r1.set(70, 70, 2);
+    TiledRaster copy = this.r1.copy();
+    assertEquals(2, copy.getTileCount());
+
+    // changing a shared tile of either raster does not change the other one
+    copy.set(0, 1, 3);
+    this.r1.set(70, 71, 4);
+    assertEquals(7, this.r1.get(0, 1));
+    assertEquals(3, copy.get(0, 1));
+    assertEquals(1, copy.get(0, 0));
+    assertEquals(7, copy.get(70, 71));
+    assertEquals(4, this.r1.get(70, 71));
+    assertEquals(2, copy.get(70, 70));
+
+    // a copy of a copy is just as separate
+    TiledRaster second = copy.copy();
+    int[] row = new int[150];
+    Arrays.fill(row, 5);
+    second.setRow(0, row);
+    copy.getRow(0, row);
+    assertEquals(1, row[0]);
+    assertEquals(3, row[1]);
+    assertEquals(7, row[100]);
+    assertEquals(5, second.get(0, 100));
+    assertEquals(4, second.getTileCount());
+    assertEquals(2, copy.getTileCount());
+  }
+}
@@ -1,10 +1,98 @@
 package util;
 
-//import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import model.Image;
+import model.Posn;
+import model.Raster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 /**
  * A class to test the ImageUtil class.
  */
 public class ImageUtilTest {
 
-}
\ No newline at end of file
+  /*
+   * Helper method that creates an image of the given type with random colors.
+   */
+  private BufferedImage createImage(int type) {
+    BufferedImage image = new BufferedImage(37, 11, type);
+    Random random = new Random(type);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        image.setRGB(j, i, random.nextInt());
+      }
+    }
+    return image;
+  }
+
+  @Test
+  public void testToRaster() {
+    int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_USHORT_565_RGB,
+        BufferedImage.TYPE_INT_ARGB_PRE};
+
+    // every type is copied to the same colors that the image returns one at a time
+    for (int type : types) {
+      BufferedImage image = this.createImage(type);
+      Raster withAlpha = ImageUtil.toRaster(image, true);
+      Raster opaque = ImageUtil.toRaster(image, false);
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals("type " + type, image.getRGB(j, i), withAlpha.get(i, j));
+          assertEquals("type " + type, image.getRGB(j, i) | 0xFF000000, opaque.get(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testToRasterOfSubimage() {
+    BufferedImage image = this.createImage(BufferedImage.TYPE_3BYTE_BGR).getSubimage(3, 2, 20, 5);
+    Raster raster = ImageUtil.toRaster(image, true);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 20; j++) {
+        assertEquals(image.getRGB(j, i), raster.get(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testToBufferedImage() {
+    Raster raster = ImageUtil.toRaster(this.createImage(BufferedImage.TYPE_INT_ARGB), true);
+    Image copy = new Image(raster, 255, new Posn(0, 0));
+
+    // the copy has its own colors and the shared image uses the colors of the raster
+    BufferedImage copied = ImageUtil.toBufferedImage(copy);
+    BufferedImage shared = ImageUtil.toBufferedImage(raster);
+    assertEquals(BufferedImage.TYPE_INT_ARGB, copied.getType());
+    assertEquals(BufferedImage.TYPE_INT_ARGB, shared.getType());
+    for (int i = 0; i < raster.getHeight(); i++) {
+      for (int j = 0; j < raster.getWidth(); j++) {
+        assertEquals(raster.get(i, j), copied.getRGB(j, i));
+        assertEquals(raster.get(i, j), shared.getRGB(j, i));
+      }
+    }
+
+    raster.set(4, 5, Raster.pack(1, 2, 3, 4));
+    assertEquals(Raster.pack(1, 2, 3, 4), shared.getRGB(5, 4));
+    assertFalse(Raster.pack(1, 2, 3, 4) == copied.getRGB(5, 4));
+  }
+
+  @Test
+  public void testNullImage() {
+    try {
+      ImageUtil.toRaster(null, true);
+      fail("Should not be able to copy a null image!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid image input!", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package util;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the PNGWriter class.
+ */
+public class PNGWriterTest {
+
+  @Test
+  public void testWrite() throws IOException {
+    File file = File.createTempFile("writer", ".png");
+    try {
+      int height = 70;
+      int width = 300;
+      int[] data = new int[height * width];
+      for (int i = 0; i < data.length; i++) {
+        int row = i / width;
+        int col = i % width;
+        data[i] = ((row * 3) % 256) << 24 | (col % 256) << 16 | ((row + col) % 256) << 8
+                | ((row * col) % 256);
+      }
+
+      // the rows are written in bands of different sizes
+      try (PNGWriter out = new PNGWriter(file.getPath(), height, width)) {
+        out.writeRows(data, 0, 1);
+        out.writeRows(data, width, 40);
+        out.writeRows(data, 41 * width, height - 41);
+      }
+
+      BufferedImage image = ImageIO.read(file);
+      assertEquals(width, image.getWidth());
+      assertEquals(height, image.getHeight());
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          assertEquals(data[i * width + j], image.getRGB(j, i));
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testInvalidInput() throws IOException {
+    try {
+      new PNGWriter(null, 1, 1);
+      fail("Null file name should throw an error!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid file name!", e.getMessage());
+    }
+
+    File file = File.createTempFile("writer", ".png");
+    try {
+      try {
+        new PNGWriter(file.getPath(), 0, 1);
+        fail("Empty image should throw an error!");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Invalid PNG dimension!", e.getMessage());
+      }
+
+      try (PNGWriter out = new PNGWriter(file.getPath(), 2, 2)) {
+        try {
+          out.writeRows(new int[3], 0, 2);
+          fail("Rows missing from the data should throw an error!");
+        } catch (IllegalArgumentException e) {
+          assertEquals("Invalid PNG input!", e.getMessage());
+        }
+        try {
+          out.writeRows(new int[6], 0, 3);
+          fail("Rows below the image should throw an error!");
+        } catch (IllegalStateException e) {
+          assertEquals("The image does not have that many rows!", e.getMessage());
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the PPMTokenizer class.
+ */
+public class PPMTokenizerTest {
+
+  /*
+   * Helper method that creates a tokenizer over the given text.
+   */
+  private PPMTokenizer tokenize(String text) {
+    return new PPMTokenizer(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testTokensAndComments() throws IOException {
+    PPMTokenizer in = this.tokenize("P3\n# a comment 1 2 3\n2 1# another\n255\n"
+            + "  10 20\t30\r\n40 50 60");
+
+    assertEquals("P3", in.nextToken());
+    assertEquals(2, in.nextInt());
+    assertEquals(1, in.nextInt());
+    assertEquals(255, in.nextInt());
+    for (int expected = 10; expected <= 60; expected += 10) {
+      assertTrue(in.hasNext());
+      assertEquals(expected, in.nextInt());
+    }
+    assertFalse(in.hasNext());
+  }
+
+  @Test
+  public void testReadBytesAfterHeader() throws IOException {
+    PPMTokenizer in = this.tokenize("P6 1 1 255\nabc");
+    assertEquals("P6", in.nextToken());
+    assertEquals(1, in.nextInt());
+    assertEquals(1, in.nextInt());
+    assertEquals(255, in.nextInt());
+
+    byte[] bytes = new byte[3];
+    in.readBytes(bytes, 0, 3);
+    assertArrayEquals(new byte[]{'a', 'b', 'c'}, bytes);
+  }
+
+  @Test
+  public void testInvalidIntegers() throws IOException {
+    PPMTokenizer in = this.tokenize("12x -3");
+    try {
+      in.nextInt();
+      fail("Should not be able to read an integer followed by a letter!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid PPM file!", e.getMessage());
+    }
+
+    in = this.tokenize("99999999999");
+    try {
+      in.nextInt();
+      fail("Should not be able to read an integer that is too large!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid PPM file!", e.getMessage());
+    }
+
+    in = this.tokenize("  # only a comment");
+    try {
+      in.nextInt();
+      fail("Should not be able to read past the end of the file!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Unexpected end of PPM file!", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A test class to test the PPMWriter class.
+ */
+public class PPMWriterTest {
+
+  @Test
+  public void testWrite() throws IOException {
+    File file = File.createTempFile("writer", ".ppm");
+    try {
+      try (PPMWriter out = new PPMWriter(file.getPath())) {
+        out.write("P3\n").writeInt(0).writeByte(' ').writeInt(-45).writeByte(' ')
+                .writeInt(Integer.MAX_VALUE).writeByte(' ').writeInt(Integer.MIN_VALUE);
+        out.writeShort(0x4142);
+      }
+      assertEquals("P3\n0 -45 2147483647 -2147483648AB",
+              new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+
+      // more bytes than the buffer holds are written in several chunks
+      byte[] expected = new byte[200000];
+      try (PPMWriter out = new PPMWriter(file.getPath())) {
+        for (int i = 0; i < expected.length; i++) {
+          expected[i] = (byte) i;
+          out.writeByte(i);
+        }
+      }
+      assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testNullFileName() throws IOException {
+    try {
+      new PPMWriter(null);
+      fail("Should not be able to write to a null file name!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid file name!", e.getMessage());
+    }
+  }
+}
@@ -1,10 +1,108 @@
 package util;
 
-//import static org.junit.Assert.*;
+import org.junit.Test;
+
+import model.Filter;
+import model.Raster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 /**
  * A test class to test the PixelArrayUtil class.
  */
 public class PixelArrayUtilTest {
 
-}
\ No newline at end of file
+  @Test
+  public void testCombineOpaque() {
+    // an opaque pixel hides the pixel under it
+    assertArrayEquals(new int[]{200, 200, 200, 255},
+            PixelArrayUtil.combinePixel(new int[]{200, 200, 200, 255},
+                    new int[]{50, 200, 150, 255}, 255));
+  }
+
+  @Test
+  public void testCombineTransparent() {
+    // a transparent pixel shows the pixel under it
+    assertArrayEquals(new int[]{50, 200, 150, 255},
+            PixelArrayUtil.combinePixel(new int[]{200, 200, 200, 0},
+                    new int[]{50, 200, 150, 255}, 255));
+  }
+
+  @Test
+  public void testCombinePartialAlpha() {
+    // half transparent over opaque
+    assertArrayEquals(new int[]{100, 50, 100, 255},
+            PixelArrayUtil.combinePixel(new int[]{200, 100, 0, 128},
+                    new int[]{0, 0, 200, 255}, 255));
+
+    // half transparent over half transparent
+    assertArrayEquals(new int[]{134, 0, 66, 191},
+            PixelArrayUtil.combinePixel(new int[]{200, 0, 0, 128},
+                    new int[]{0, 0, 200, 127}, 255));
+
+    // other max values use the same formula
+    assertArrayEquals(new int[]{50, 0, 50, 100},
+            PixelArrayUtil.combinePixel(new int[]{100, 0, 0, 50},
+                    new int[]{0, 0, 100, 100}, 100));
+  }
+
+  @Test
+  public void testCombineARGBMatchesArrays() {
+    int curr = Raster.pack(200, 0, 0, 128);
+    int prev = Raster.pack(0, 0, 200, 127);
+    assertEquals(Raster.pack(PixelArrayUtil.combinePixel(Raster.unpack(curr),
+            Raster.unpack(prev), 255)), PixelArrayUtil.combineARGB(curr, prev, 255));
+  }
+
+  @Test
+  public void testCombineRow() {
+    int[] src = {Raster.pack(1, 2, 3, 255), Raster.pack(200, 100, 0, 128),
+                 Raster.pack(9, 9, 9, 0)};
+    int[] dest = {0, Raster.pack(7, 7, 7, 255), Raster.pack(0, 0, 200, 255),
+                  Raster.pack(5, 5, 5, 255)};
+
+    PixelArrayUtil.combineRow(src, 0, dest, 1, 3, 255);
+
+    assertArrayEquals(new int[]{0, Raster.pack(1, 2, 3, 255), Raster.pack(100, 50, 100, 255),
+                                Raster.pack(5, 5, 5, 255)}, dest);
+  }
+
+  @Test
+  public void testInvertRow() {
+    int[] curr = {Raster.pack(10, 200, 30, 255), Raster.pack(0, 0, 0, 40)};
+    int[] prev = {Raster.pack(50, 100, 30, 255), Raster.pack(255, 1, 2, 255)};
+    int[] dest = new int[2];
+
+    PixelArrayUtil.invertRow(curr, prev, dest, 0, 2);
+
+    assertArrayEquals(new int[]{Raster.pack(40, 100, 0, 255), Raster.pack(255, 1, 2, 40)}, dest);
+  }
+
+  @Test
+  public void testMaskRow() {
+    int[] row = {Raster.pack(10, 20, 30, 255), Raster.pack(40, 50, 60, 7)};
+
+    PixelArrayUtil.maskRow(row, row, 0, 2, 0xFF00FF00);
+
+    assertArrayEquals(new int[]{Raster.pack(0, 20, 0, 255), Raster.pack(0, 50, 0, 7)}, row);
+  }
+
+  @Test
+  public void testFilterRowMatchesPixels() {
+    int[] curr = new int[16];
+    int[] prev = new int[16];
+    for (int j = 0; j < 16; j++) {
+      curr[j] = Raster.pack(j * 16, 255 - j * 16, j * 7, j % 2 == 0 ? 255 : 100);
+      prev[j] = Raster.pack(j * 3, j * 11, 255 - j * 5, 255);
+    }
+
+    for (Filter f : Filter.values()) {
+      int[] dest = new int[16];
+      f.applyRow(curr, prev, dest, 0, 16, 255);
+      for (int j = 0; j < 16; j++) {
+        assertEquals(f.apply(curr[j], prev[j], 255), dest[j]);
+      }
+    }
+  }
+}